@@ -0,0 +1,108 @@
+package com.grocerystore.benchmark;
+
+import com.grocerystore.GroceryStoreApplication;
+import com.grocerystore.entity.CartItem;
+import com.grocerystore.entity.Category;
+import com.grocerystore.entity.Product;
+import com.grocerystore.repository.CartRepository;
+import com.grocerystore.repository.ProductRepository;
+import com.grocerystore.service.ProductService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the application (without the web layer) against a fresh embedded H2 database
+ * seeded with a catalog of catalogSize products and a cart of cartSize lines.
+ */
+@State(Scope.Benchmark)
+public class ApplicationState {
+
+    public static final String CART_USER = "bench-user";
+
+    private static final Category[] CATEGORIES = Category.values();
+    private static final String[] WORDS = {
+            "fresh", "organic", "apples", "bananas", "carrots", "spinach", "milk", "yogurt",
+            "cheese", "butter", "juice", "water", "tea", "coffee", "peppers", "broccoli"
+    };
+
+    @Param({"1000", "10000"})
+    public int catalogSize;
+
+    @Param({"5", "40"})
+    public int cartSize;
+
+    public ConfigurableApplicationContext context;
+    public List<Product> products;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = startContext();
+
+        List<Product> catalog = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            String name = WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " " + i;
+            catalog.add(new Product(name, CATEGORIES[i % CATEGORIES.length],
+                    new BigDecimal("1.99").add(BigDecimal.valueOf(i % 500, 2)),
+                    "https://example.com/products/" + i + ".jpg",
+                    "Benchmark product " + i + " with a " + WORDS[(i * 7) % WORDS.length] + " description."));
+        }
+        products = context.getBean(ProductRepository.class).saveAll(catalog);
+        context.getBean(ProductService.class).refreshCatalog();
+
+        fillCart(CART_USER);
+    }
+
+    /**
+     * Start the application without the web layer or sample data, on a fresh embedded database
+     * @return the application context
+     */
+    public static ConfigurableApplicationContext startContext() {
+        return new SpringApplicationBuilder(GroceryStoreApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1",
+                        "--spring.main.banner-mode=off",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.format_sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.grocerystore=WARN",
+                        "--logging.level.org.springframework.web=WARN",
+                        "--logging.level.org.hibernate.SQL=WARN",
+                        "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                        "--grocerystore.sample-data.enabled=false"
+                );
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    /**
+     * Replace a user's cart with cartSize lines of quantity 2
+     * @param userId the user whose cart is filled
+     */
+    public void fillCart(String userId) {
+        CartRepository cartRepository = context.getBean(CartRepository.class);
+        List<CartItem> items = new ArrayList<>(cartSize);
+        for (int i = 0; i < cartSize; i++) {
+            items.add(new CartItem(products.get(i % products.size()).getId(), userId, 2));
+        }
+        cartRepository.saveAll(items);
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+}
@@ -0,0 +1,32 @@
+package com.grocerystore.benchmark;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks profile: JMH's Main, except that on runtimes without virtual threads (below Java 21)
+ * only the platform variant of ConcurrentUsersBenchmark runs, so a run of all benchmarks does not fail on the
+ * virtual one. Passing -p threading=... on the command line overrides this.
+ */
+public final class BenchmarkMain {
+
+    private static final int VIRTUAL_THREADS_FEATURE = 21;
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (Runtime.version().feature() >= VIRTUAL_THREADS_FEATURE || options.getParameter("threading").hasValue()
+                || options.shouldHelp() || options.shouldList() || options.shouldListWithParams()
+                || options.shouldListProfilers() || options.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        System.out.println("# Running on " + Runtime.version() + ": skipping threading=virtual, which needs Java "
+                + VIRTUAL_THREADS_FEATURE);
+        new Runner(new OptionsBuilder().parent(options).param("threading", "platform").build()).run();
+    }
+}
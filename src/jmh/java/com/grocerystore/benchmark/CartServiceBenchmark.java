@@ -0,0 +1,36 @@
+package com.grocerystore.benchmark;
+
+import com.grocerystore.dto.AddToCartRequest;
+import com.grocerystore.dto.CartResponse;
+import com.grocerystore.entity.CartItem;
+import com.grocerystore.service.CartService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartServiceBenchmark {
+
+    @Benchmark
+    public CartResponse getCart(ApplicationState state) {
+        return state.getBean(CartService.class).getCart(ApplicationState.CART_USER);
+    }
+
+    @Benchmark
+    public CartItem addToCart(ApplicationState state) {
+        // Increments an existing line, the common case while shopping
+        AddToCartRequest request = new AddToCartRequest(
+                state.products.get(0).getId(), ApplicationState.CART_USER, 1);
+        return state.getBean(CartService.class).addToCart(request);
+    }
+}
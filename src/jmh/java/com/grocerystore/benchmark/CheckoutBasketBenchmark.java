@@ -0,0 +1,103 @@
+package com.grocerystore.benchmark;
+
+import com.grocerystore.dto.CheckoutRequest;
+import com.grocerystore.dto.OrderResponse;
+import com.grocerystore.entity.CartItem;
+import com.grocerystore.entity.Category;
+import com.grocerystore.entity.Order;
+import com.grocerystore.entity.Product;
+import com.grocerystore.repository.CartRepository;
+import com.grocerystore.repository.ProductRepository;
+import com.grocerystore.service.OrderService;
+import com.grocerystore.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkout latency against basket size: persisting the order and one item per cart line.
+ * Every invocation checks out a freshly filled cart of basketSize lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CheckoutBasketBenchmark {
+
+    private static final String CHECKOUT_USER = "bench-basket";
+
+    @Param({"1", "10", "40", "100"})
+    public int basketSize;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private CartRepository cartRepository;
+    private List<Product> products;
+    private CheckoutRequest request;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = ApplicationState.startContext();
+        orderService = context.getBean(OrderService.class);
+        cartRepository = context.getBean(CartRepository.class);
+
+        List<Product> catalog = new ArrayList<>(basketSize);
+        for (int i = 0; i < basketSize; i++) {
+            catalog.add(new Product("Basket product " + i, Category.values()[i % Category.values().length],
+                    new BigDecimal("1.99").add(BigDecimal.valueOf(i, 2)),
+                    "https://example.com/products/" + i + ".jpg", "Basket product " + i + " description."));
+        }
+        products = context.getBean(ProductRepository.class).saveAll(catalog);
+        context.getBean(ProductService.class).refreshCatalog();
+
+        request = new CheckoutRequest();
+        request.setUserId(CHECKOUT_USER);
+        request.setFullName("Bench User");
+        request.setEmail("bench@example.com");
+        request.setPhone("555-0100");
+        request.setAddressLine1("1 Benchmark Way");
+        request.setCity("Springfield");
+        request.setState("IL");
+        request.setZipCode("62701");
+        request.setCountry("US");
+        request.setPaymentMethod(Order.PaymentMethod.CASH_ON_DELIVERY);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    // Checkout empties the cart, so every invocation starts from a freshly filled one
+    @Setup(Level.Invocation)
+    public void fillCart() {
+        List<CartItem> items = new ArrayList<>(basketSize);
+        for (Product product : products) {
+            items.add(new CartItem(product.getId(), CHECKOUT_USER, 2));
+        }
+        cartRepository.saveAll(items);
+    }
+
+    @Benchmark
+    public OrderResponse processCheckout() {
+        return orderService.processCheckout(request);
+    }
+}
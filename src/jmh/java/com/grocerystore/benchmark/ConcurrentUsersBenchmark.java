@@ -0,0 +1,148 @@
+package com.grocerystore.benchmark;
+
+import com.grocerystore.GroceryStoreApplication;
+import com.grocerystore.entity.Order;
+import com.grocerystore.repository.OrderRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A wave of users concurrent users, each adding a product to their cart, reading the cart and checking out
+ * over HTTP, against the full web application on platform threads (Tomcat's pool and the bounded payment pool)
+ * and on virtual threads (the virtual-threads profile). Every invocation is one wave; the score is the time until
+ * the last order of the wave has its payment outcome recorded. Payment authorization is slowed down by
+ * paymentLatencyMs, so payments hold their executor threads like a remote gateway call would.
+ * The virtual variant needs a Java 21 runtime (build with -Pjava21); BenchmarkMain skips it on older runtimes, and it
+ * fails at setup if selected there explicitly.
+ * Each user keeps a connection open, so the client needs a file descriptor limit above users.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConcurrentUsersBenchmark {
+
+    private static final String CHECKOUT_BODY = "{\"userId\":\"%s\",\"fullName\":\"Load User\","
+            + "\"email\":\"load@example.com\",\"phone\":\"555-0100\",\"addressLine1\":\"1 Load Street\","
+            + "\"city\":\"Springfield\",\"state\":\"IL\",\"zipCode\":\"62701\",\"country\":\"US\","
+            + "\"paymentMethod\":\"CASH_ON_DELIVERY\"}";
+
+    @Param({"platform", "virtual"})
+    public String threading;
+
+    @Param({"5000"})
+    public int users;
+
+    @Param({"50"})
+    public long paymentLatencyMs;
+
+    private ConfigurableApplicationContext context;
+    private OrderRepository orderRepository;
+    private HttpClient client;
+    private String baseUrl;
+    private int wave;
+
+    @Setup(Level.Trial)
+    public void startServer() {
+        SpringApplicationBuilder application = new SpringApplicationBuilder(GroceryStoreApplication.class);
+        if (threading.equals("virtual")) {
+            if (Runtime.version().feature() < 21) {
+                throw new IllegalStateException("Virtual threads need Java 21, running on " + Runtime.version());
+            }
+            application.profiles("virtual-threads");
+        }
+        context = application.run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:users-benchmark-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1",
+                "--spring.main.banner-mode=off",
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.com.grocerystore=WARN",
+                "--grocerystore.payment.simulated-latency-ms=" + paymentLatencyMs,
+                // Every payment of a wave is queued at once, and each then queues the recording of its outcome
+                "--grocerystore.payment.executor.queue-capacity=" + 2 * users);
+
+        orderRepository = context.getBean(OrderRepository.class);
+        baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() {
+        context.close();
+    }
+
+    @Benchmark
+    public int checkoutWave() throws InterruptedException {
+        String prefix = "load-" + threading + "-" + (wave++) + "-";
+        CompletableFuture<?>[] sessions = new CompletableFuture<?>[users];
+        for (int i = 0; i < users; i++) {
+            sessions[i] = session(prefix + i);
+        }
+        CompletableFuture.allOf(sessions).join();
+
+        // Payments run after checkout has answered; wait for the last one
+        while (!orderRepository.findIdsByStatusPlacedBefore(Order.OrderStatus.PENDING,
+                LocalDateTime.now().plusDays(1), PageRequest.of(0, 1)).isEmpty()) {
+            Thread.sleep(10);
+        }
+        return sessions.length;
+    }
+
+    // One user: add to cart, read the cart, check out
+    private CompletableFuture<String> session(String userId) {
+        HttpRequest addToCart = json(URI.create(baseUrl + "/api/cart"),
+                "{\"productId\":1,\"userId\":\"" + userId + "\",\"quantity\":2}");
+        HttpRequest cart = HttpRequest.newBuilder(URI.create(baseUrl + "/api/cart?userId=" + userId)).build();
+        HttpRequest checkout = json(URI.create(baseUrl + "/api/order/checkout"), String.format(CHECKOUT_BODY, userId));
+        return send(addToCart, 201)
+                .thenCompose(body -> send(cart, 200))
+                .thenCompose(body -> send(checkout, 202));
+    }
+
+    private CompletableFuture<String> send(HttpRequest request, int expectedStatus) {
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenApply(response -> {
+            if (response.statusCode() != expectedStatus) {
+                throw new IllegalStateException(request.uri() + " returned " + response.statusCode() + ": " + response.body());
+            }
+            return response.body();
+        });
+    }
+
+    private static HttpRequest json(URI uri, String body) {
+        return HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
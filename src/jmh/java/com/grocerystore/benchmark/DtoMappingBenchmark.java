@@ -0,0 +1,90 @@
+package com.grocerystore.benchmark;
+
+import com.grocerystore.dto.CartResponse;
+import com.grocerystore.dto.OrderResponse;
+import com.grocerystore.entity.CartItem;
+import com.grocerystore.entity.Category;
+import com.grocerystore.entity.Order;
+import com.grocerystore.entity.OrderItem;
+import com.grocerystore.entity.Product;
+import com.grocerystore.util.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DTO mapping in isolation, without the database: the CartResponse built by CartService.getCart
+ * and the OrderResponse built for every order read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoMappingBenchmark {
+
+    @Param({"5", "40"})
+    public int cartSize;
+
+    private List<CartItem> cartItems;
+    private Order order;
+
+    @Setup
+    public void createEntities() {
+        cartItems = new ArrayList<>(cartSize);
+        order = new Order();
+        order.setId(1L);
+        order.setUserId("bench-user");
+        List<OrderItem> orderItems = new ArrayList<>(cartSize);
+        for (int i = 0; i < cartSize; i++) {
+            Product product = new Product("Product " + i, Category.values()[i % Category.values().length],
+                    new BigDecimal("2.49").add(BigDecimal.valueOf(i, 2)),
+                    "https://example.com/" + i + ".jpg", "Description of product " + i);
+            product.setId((long) i);
+
+            CartItem cartItem = new CartItem(product.getId(), "bench-user", 1 + i % 3);
+            cartItem.setId((long) i);
+            cartItem.setProduct(product);
+            cartItems.add(cartItem);
+
+            orderItems.add(new OrderItem(order, product.getId(), product.getName(), product.getPrice(),
+                    cartItem.getQuantity(), product.getDescription(), product.getImageUrl(), product.getCategory()));
+        }
+        order.setOrderItems(orderItems);
+        order.setSubtotal(new BigDecimal("100.00"));
+        order.setTaxAmount(new BigDecimal("8.00"));
+        order.setTotalAmount(new BigDecimal("108.00"));
+    }
+
+    @Benchmark
+    public CartResponse cartResponse() {
+        List<CartResponse.CartItemResponse> items = new ArrayList<>(cartItems.size());
+        int totalItems = 0;
+        long totalAmount = 0;
+        for (CartItem item : cartItems) {
+            items.add(new CartResponse.CartItemResponse(item));
+            totalItems += item.getQuantity();
+            totalAmount += item.getProduct().priceMinorUnits() * item.getQuantity();
+        }
+        return new CartResponse("bench-user", items, totalItems, Money.toBigDecimal(totalAmount));
+    }
+
+    @Benchmark
+    public OrderResponse orderResponse() {
+        return new OrderResponse(order);
+    }
+}
@@ -0,0 +1,143 @@
+package com.grocerystore.benchmark;
+
+import com.grocerystore.entity.Category;
+import com.grocerystore.entity.Product;
+import com.grocerystore.repository.ProductRepository;
+import com.grocerystore.service.InventoryLedger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flash sale on one SKU: 10,000 checkouts released at once, on a pool of buyer threads, each trying to
+ * reserve one unit of a product with 5,000 in stock. Compares the sharded in-memory ledger (one shard,
+ * i.e. a single CAS counter, and the default sixteen) with a conditional row update per checkout, which
+ * serializes every buyer on the product's row lock. Each invocation checks that exactly the stock was sold.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class InventoryBenchmark {
+
+    private static final int CHECKOUTS = 10_000;
+    private static final int STOCK = 5_000;
+    private static final int BUYER_THREADS = 256;
+
+    // Takes units with a conditional row update, only if enough are on hand
+    private static final String TAKE_STOCK_SQL = "UPDATE products SET stock = stock - ? WHERE id = ? AND stock >= ?";
+
+    @State(Scope.Benchmark)
+    public static class SaleState {
+
+        @Param({"ledger-1-shard", "ledger-16-shards", "row-lock"})
+        public String strategy;
+
+        ConfigurableApplicationContext context;
+        ProductRepository productRepository;
+        TransactionTemplate transactionTemplate;
+        JdbcTemplate jdbcTemplate;
+        ExecutorService buyers;
+        Long productId;
+        InventoryLedger ledger;
+
+        @Setup(Level.Trial)
+        public void startApplication() {
+            context = ApplicationState.startContext();
+            productRepository = context.getBean(ProductRepository.class);
+            transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+            jdbcTemplate = context.getBean(JdbcTemplate.class);
+            Product product = new Product("Flash sale item", Category.FRUITS, new BigDecimal("0.99"),
+                    "https://example.com/products/flash.jpg", "Hot SKU");
+            product.setStock(STOCK);
+            productId = productRepository.save(product).getId();
+            buyers = Executors.newFixedThreadPool(BUYER_THREADS);
+        }
+
+        // Every sale starts from full stock and, for the ledger, a ledger that has not seen the product yet
+        @Setup(Level.Invocation)
+        public void restock() {
+            jdbcTemplate.update("UPDATE products SET stock = ? WHERE id = ?", STOCK, productId);
+            ledger = switch (strategy) {
+                case "ledger-1-shard" -> new InventoryLedger(productRepository,
+                        context.getBean(PlatformTransactionManager.class), 1, Long.MAX_VALUE);
+                case "ledger-16-shards" -> new InventoryLedger(productRepository,
+                        context.getBean(PlatformTransactionManager.class), 16, Long.MAX_VALUE);
+                default -> null;
+            };
+        }
+
+        @TearDown(Level.Trial)
+        public void stopApplication() {
+            buyers.shutdownNow();
+            context.close();
+        }
+
+        boolean checkout() {
+            if (ledger != null) {
+                try {
+                    ledger.reserve(Map.of(productId, 1));
+                    return true;
+                } catch (IllegalArgumentException e) {
+                    return false;
+                }
+            }
+            Integer rows = transactionTemplate.execute(status -> jdbcTemplate.update(TAKE_STOCK_SQL, 1, productId, 1));
+            return rows != null && rows == 1;
+        }
+    }
+
+    @Benchmark
+    public int flashSale(SaleState sale) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> checkouts = new ArrayList<>(CHECKOUTS);
+        for (int i = 0; i < CHECKOUTS; i++) {
+            checkouts.add(sale.buyers.submit(() -> {
+                start.await();
+                return sale.checkout();
+            }));
+        }
+        start.countDown();
+
+        int sold = 0;
+        for (Future<Boolean> checkout : checkouts) {
+            if (checkout.get()) {
+                sold++;
+            }
+        }
+        if (sale.ledger != null) {
+            // Include writing the reservations behind to the database
+            sale.ledger.flush();
+        }
+        Integer stored = sale.productRepository.findStockById(sale.productId).orElse(null);
+        if (sold != STOCK || stored == null || stored != 0) {
+            throw new IllegalStateException("Sold " + sold + " of " + STOCK + ", " + stored + " left in the database");
+        }
+        return sold;
+    }
+}
@@ -0,0 +1,109 @@
+package com.grocerystore.benchmark;
+
+import com.grocerystore.GroceryStoreApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end request throughput with the logging configuration of the default (development) settings,
+ * which echo and pretty-print every SQL statement, trace bind parameters and pretty-print JSON,
+ * against the prod profile. Runs the full web application with its sample data, over HTTP.
+ * Console output is redirected to target/logging-benchmark-{profile}.log, so both configurations pay
+ * for formatting and writing their log lines without flooding the benchmark output.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+public class LoggingProfileBenchmark {
+
+    private static final String CART_USER = "user123";
+
+    @State(Scope.Benchmark)
+    public static class ServerState {
+
+        @Param({"dev", "prod"})
+        public String profile;
+
+        ConfigurableApplicationContext context;
+        HttpClient client;
+        HttpRequest productPage;
+        HttpRequest cart;
+        PrintStream console;
+
+        @Setup(Level.Trial)
+        public void startServer() throws IOException {
+            Path log = Path.of("target", "logging-benchmark-" + profile + ".log");
+            Files.createDirectories(log.getParent());
+            console = System.out;
+            System.setOut(new PrintStream(new BufferedOutputStream(new FileOutputStream(log.toFile())), false));
+
+            SpringApplicationBuilder application = new SpringApplicationBuilder(GroceryStoreApplication.class);
+            if (profile.equals("prod")) {
+                application.profiles("prod");
+            }
+            context = application.run(
+                    "--server.port=0",
+                    "--spring.datasource.url=jdbc:h2:mem:logging-benchmark-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            productPage = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/products?limit=20")).build();
+            cart = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/cart?userId=" + CART_USER)).build();
+        }
+
+        @TearDown(Level.Trial)
+        public void stopServer() {
+            context.close();
+            System.out.flush();
+            System.setOut(console);
+        }
+
+        String get(HttpRequest request) throws IOException, InterruptedException {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException(request.uri() + " returned " + response.statusCode());
+            }
+            return response.body();
+        }
+    }
+
+    @Benchmark
+    public String productPage(ServerState state) throws Exception {
+        return state.get(state.productPage);
+    }
+
+    @Benchmark
+    public String cart(ServerState state) throws Exception {
+        return state.get(state.cart);
+    }
+}
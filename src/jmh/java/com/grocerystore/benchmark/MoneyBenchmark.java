@@ -0,0 +1,87 @@
+package com.grocerystore.benchmark;
+
+import com.grocerystore.entity.CartItem;
+import com.grocerystore.entity.Category;
+import com.grocerystore.entity.Product;
+import com.grocerystore.util.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart and checkout totals with BigDecimal arithmetic (as getCart and processCheckout did before)
+ * versus fixed-point minor units with Money. Compare gc.alloc.rate.norm (bytes per operation)
+ * reported by the GC profiler alongside the timings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private static final BigDecimal TAX_RATE = new BigDecimal("0.08");
+    private static final long TAX_RATE_BASIS_POINTS = 800;
+
+    @Param({"5", "40"})
+    public int cartSize;
+
+    private List<CartItem> cartItems;
+
+    @Setup
+    public void createCart() {
+        cartItems = new ArrayList<>(cartSize);
+        for (int i = 0; i < cartSize; i++) {
+            Product product = new Product("Product " + i, Category.values()[i % Category.values().length],
+                    new BigDecimal("2.49").add(BigDecimal.valueOf(i, 2)), null, null);
+            product.setId((long) i);
+            CartItem cartItem = new CartItem(product.getId(), "bench-user", 1 + i % 3);
+            cartItem.setProduct(product);
+            cartItems.add(cartItem);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalCartTotal() {
+        return cartItems.stream()
+                .map(item -> item.getProduct().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Benchmark
+    public long moneyCartTotal() {
+        long subtotal = 0;
+        for (CartItem item : cartItems) {
+            subtotal += item.getProduct().priceMinorUnits() * item.getQuantity();
+        }
+        return subtotal;
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalCheckoutTotal() {
+        BigDecimal subtotal = bigDecimalCartTotal();
+        BigDecimal tax = subtotal.multiply(TAX_RATE).setScale(2, RoundingMode.HALF_EVEN);
+        return subtotal.add(tax);
+    }
+
+    @Benchmark
+    public long moneyCheckoutTotal() {
+        long subtotal = moneyCartTotal();
+        return subtotal + Money.applyRate(subtotal, TAX_RATE_BASIS_POINTS);
+    }
+}
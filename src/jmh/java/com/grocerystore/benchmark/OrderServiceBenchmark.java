@@ -0,0 +1,61 @@
+package com.grocerystore.benchmark;
+
+import com.grocerystore.dto.CheckoutRequest;
+import com.grocerystore.dto.OrderResponse;
+import com.grocerystore.entity.Order;
+import com.grocerystore.service.OrderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderServiceBenchmark {
+
+    private static final String CHECKOUT_USER = "bench-checkout";
+
+    @State(Scope.Thread)
+    public static class CheckoutState {
+
+        CheckoutRequest request;
+
+        @Setup(Level.Trial)
+        public void createRequest() {
+            request = new CheckoutRequest();
+            request.setUserId(CHECKOUT_USER);
+            request.setFullName("Bench User");
+            request.setEmail("bench@example.com");
+            request.setPhone("555-0100");
+            request.setAddressLine1("1 Benchmark Way");
+            request.setCity("Springfield");
+            request.setState("IL");
+            request.setZipCode("62701");
+            request.setCountry("US");
+            request.setPaymentMethod(Order.PaymentMethod.CASH_ON_DELIVERY);
+        }
+
+        // Checkout empties the cart, so every invocation starts from a freshly filled one
+        @Setup(Level.Invocation)
+        public void fillCart(ApplicationState state) {
+            state.fillCart(CHECKOUT_USER);
+        }
+    }
+
+    @Benchmark
+    public OrderResponse processCheckout(ApplicationState state, CheckoutState checkout) {
+        return state.getBean(OrderService.class).processCheckout(checkout.request);
+    }
+}
@@ -0,0 +1,32 @@
+package com.grocerystore.benchmark;
+
+import com.grocerystore.entity.Product;
+import com.grocerystore.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+    @Benchmark
+    public List<Product> searchProductsByName(ApplicationState state) {
+        return state.getBean(ProductService.class).searchProductsByName("organic app");
+    }
+
+    @Benchmark
+    public List<Product> searchSingleTermPrefix(ApplicationState state) {
+        return state.getBean(ProductService.class).searchProductsByName("co");
+    }
+}
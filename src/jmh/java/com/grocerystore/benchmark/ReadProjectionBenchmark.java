@@ -0,0 +1,120 @@
+package com.grocerystore.benchmark;
+
+import com.grocerystore.dto.CartResponse;
+import com.grocerystore.dto.CheckoutRequest;
+import com.grocerystore.dto.OrderResponse;
+import com.grocerystore.entity.CartItem;
+import com.grocerystore.entity.Order;
+import com.grocerystore.repository.CartRepository;
+import com.grocerystore.repository.OrderRepository;
+import com.grocerystore.service.OrderService;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cart and order-by-ID reads, loading managed entities and copying them into the response DTOs
+ * (as CartService.getCart and OrderService.getOrderById used to) against the JPQL constructor projections
+ * in CartRepository and OrderRepository, which read straight into the DTOs in a read-only transaction.
+ * The entity variants run in a read-write transaction, like the order read did and like a request with
+ * open-in-view holds the cart entities, so they also pay for snapshots and the flush-time dirty check.
+ * The old order query runs on the EntityManager rather than through an annotated repository method,
+ * which leaves out Spring Data's per-call query processing and so flatters the entity variant.
+ * Run with the gc profiler (the default of the benchmarks profile) for allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadProjectionBenchmark {
+
+    private static final String ORDER_USER = "bench-order-reader";
+
+    // The order read before it was replaced by the projections
+    private static final String ORDER_WITH_ITEMS =
+            "SELECT o FROM Order o LEFT JOIN FETCH o.orderItems WHERE o.id = :orderId";
+
+    @State(Scope.Benchmark)
+    public static class ReadState {
+
+        TransactionTemplate readWrite;
+        TransactionTemplate readOnly;
+        EntityManager entityManager;
+        CartRepository cartRepository;
+        OrderRepository orderRepository;
+        Long orderId;
+
+        @Setup(Level.Trial)
+        public void placeOrder(ApplicationState state) {
+            PlatformTransactionManager transactionManager = state.getBean(PlatformTransactionManager.class);
+            readWrite = new TransactionTemplate(transactionManager);
+            readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            entityManager = state.getBean(EntityManager.class);
+            cartRepository = state.getBean(CartRepository.class);
+            orderRepository = state.getBean(OrderRepository.class);
+
+            // An order with cartSize lines
+            state.fillCart(ORDER_USER);
+            CheckoutRequest request = new CheckoutRequest();
+            request.setUserId(ORDER_USER);
+            request.setFullName("Bench User");
+            request.setEmail("bench@example.com");
+            request.setPhone("555-0100");
+            request.setAddressLine1("1 Benchmark Way");
+            request.setCity("Springfield");
+            request.setState("IL");
+            request.setZipCode("62701");
+            request.setCountry("US");
+            request.setPaymentMethod(Order.PaymentMethod.CASH_ON_DELIVERY);
+            orderId = state.getBean(OrderService.class).processCheckout(request).getOrderId();
+        }
+    }
+
+    @Benchmark
+    public List<CartResponse.CartItemResponse> cartEntities(ReadState read) {
+        return read.readWrite.execute(status -> {
+            List<CartItem> cartItems = read.cartRepository.findByUserIdWithProducts(ApplicationState.CART_USER);
+            List<CartResponse.CartItemResponse> itemResponses = new ArrayList<>(cartItems.size());
+            for (CartItem item : cartItems) {
+                itemResponses.add(new CartResponse.CartItemResponse(item));
+            }
+            return itemResponses;
+        });
+    }
+
+    @Benchmark
+    public List<CartResponse.CartItemResponse> cartProjection(ReadState read) {
+        return read.readOnly.execute(status ->
+                read.cartRepository.findItemResponsesByUserId(ApplicationState.CART_USER));
+    }
+
+    @Benchmark
+    public OrderResponse orderEntities(ReadState read) {
+        return read.readWrite.execute(status -> new OrderResponse(read.entityManager
+                .createQuery(ORDER_WITH_ITEMS, Order.class)
+                .setParameter("orderId", read.orderId)
+                .getSingleResult()));
+    }
+
+    @Benchmark
+    public OrderResponse orderProjection(ReadState read) {
+        return read.readOnly.execute(status -> read.orderRepository.findResponseById(read.orderId).orElseThrow());
+    }
+}
@@ -5,23 +5,29 @@ import com.grocerystore.entity.Category;
 import com.grocerystore.entity.Product;
 import com.grocerystore.repository.CartRepository;
 import com.grocerystore.repository.ProductRepository;
+import com.grocerystore.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.util.List;
 
 @Component
+@ConditionalOnProperty(name = "grocerystore.sample-data.enabled", havingValue = "true", matchIfMissing = true)
 public class DataLoader implements CommandLineRunner {
 
     private final ProductRepository productRepository;
     private final CartRepository cartRepository;
+    private final ProductService productService;
 
     @Autowired
-    public DataLoader(ProductRepository productRepository, CartRepository cartRepository) {
+    public DataLoader(ProductRepository productRepository, CartRepository cartRepository,
+                      ProductService productService) {
         this.productRepository = productRepository;
         this.cartRepository = cartRepository;
+        this.productService = productService;
     }
 
     @Override
@@ -105,6 +111,8 @@ public class DataLoader implements CommandLineRunner {
         );
 
         productRepository.saveAll(sampleProducts);
+        // Products were saved directly, so drop anything the catalog cached before seeding
+        productService.refreshCatalog();
         System.out.println("Loaded " + sampleProducts.size() + " sample products into the database.");
     }
 
@@ -0,0 +1,51 @@
+package com.grocerystore.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class PaymentConfig {
+
+    /**
+     * Dedicated executor for payment authorization, so slow gateway calls
+     * never occupy request threads or pooled database connections.
+     */
+    @Bean
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public AsyncTaskExecutor paymentExecutor(
+            @Value("${grocerystore.payment.executor.core-size:16}") int coreSize,
+            @Value("${grocerystore.payment.executor.max-size:64}") int maxSize,
+            @Value("${grocerystore.payment.executor.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("payment-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.setTaskDecorator(new MdcTaskDecorator());
+        return executor;
+    }
+
+    /**
+     * Virtual-thread variant used when spring.threads.virtual.enabled=true on Java 21+.
+     * Each in-flight payment gets its own virtual thread, bounded only by the in-flight limit.
+     */
+    @Bean(name = "paymentExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public AsyncTaskExecutor virtualPaymentExecutor(
+            @Value("${grocerystore.payment.executor.max-in-flight:10000}") int maxInFlight) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("payment-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(maxInFlight);
+        executor.setTaskTerminationTimeout(30_000);
+        executor.setTaskDecorator(new MdcTaskDecorator());
+        return executor;
+    }
+}
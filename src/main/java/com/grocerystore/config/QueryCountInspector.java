@@ -0,0 +1,88 @@
+package com.grocerystore.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts the SQL statements Hibernate prepares: in total, and per request on the request's thread.
+ * Statements are passed through unchanged; the cost is one counter increment per statement.
+ * A thread can also record the SQL it runs, which the tests use to count statements per operation and to EXPLAIN
+ * the statements the repositories actually generate.
+ */
+@Component
+public class QueryCountInspector implements StatementInspector {
+
+    // Statements prepared on this thread since begin(); null while no request is being counted
+    private static final ThreadLocal<Tally> CURRENT = new ThreadLocal<>();
+
+    private final Counter statements;
+
+    @Autowired
+    public QueryCountInspector(MeterRegistry meterRegistry) {
+        this.statements = Counter.builder("grocerystore.db.statements")
+                .description("SQL statements prepared by Hibernate")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        statements.increment();
+        Tally tally = CURRENT.get();
+        if (tally != null) {
+            tally.count++;
+            if (tally.statements != null) {
+                tally.statements.add(sql);
+            }
+        }
+        return sql;
+    }
+
+    /**
+     * Start counting the statements of the current thread
+     */
+    public void begin() {
+        CURRENT.set(new Tally(null));
+    }
+
+    /**
+     * Start counting the statements of the current thread and keep their SQL
+     */
+    public void beginRecording() {
+        CURRENT.set(new Tally(new ArrayList<>()));
+    }
+
+    /**
+     * Stop counting the statements of the current thread
+     * @return the statements prepared since begin(), or -1 if begin() was not called
+     */
+    public long end() {
+        Tally tally = CURRENT.get();
+        CURRENT.remove();
+        return tally == null ? -1 : tally.count;
+    }
+
+    /**
+     * Stop recording the statements of the current thread
+     * @return the SQL of the statements prepared since beginRecording(), in order; empty if it was not called
+     */
+    public List<String> endRecording() {
+        Tally tally = CURRENT.get();
+        CURRENT.remove();
+        return tally == null || tally.statements == null ? List.of() : tally.statements;
+    }
+
+    private static final class Tally {
+        private long count;
+        private final List<String> statements;
+
+        Tally(List<String> statements) {
+            this.statements = statements;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.grocerystore.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Records how many SQL statements each request issued, per endpoint (method and URI pattern).
+ * Statements run off the request thread, such as the asynchronous payment stage, are not included.
+ */
+public class QueryCountInterceptor implements AsyncHandlerInterceptor {
+
+    // A handful of fixed buckets is enough to spot N+1 queries
+    private static final double[] STATEMENT_BUCKETS = {1, 2, 5, 10, 20, 50, 100};
+
+    private final QueryCountInspector inspector;
+    private final MeterRegistry meterRegistry;
+
+    public QueryCountInterceptor(QueryCountInspector inspector, MeterRegistry meterRegistry) {
+        this.inspector = inspector;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        inspector.begin();
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // The response is produced on another thread, which this thread's count cannot see
+        inspector.end();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        long statements = inspector.end();
+        if (statements < 0) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder("grocerystore.db.queries.per.request")
+                .description("SQL statements issued per request")
+                .baseUnit("statements")
+                .serviceLevelObjectives(STATEMENT_BUCKETS)
+                .tag("method", request.getMethod())
+                .tag("uri", pattern != null ? pattern.toString() : "UNKNOWN")
+                .register(meterRegistry)
+                .record(statements);
+    }
+}
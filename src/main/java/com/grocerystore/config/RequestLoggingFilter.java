@@ -0,0 +1,84 @@
+package com.grocerystore.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tags every request with a correlation ID and logs the requests slower than the threshold.
+ * The ID is taken from the X-Request-Id header (or generated), put in the MDC as requestId for every log line
+ * of the request, and echoed in the response. Slow requests go to the grocerystore.slow-request logger.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestLoggingFilter extends OncePerRequestFilter {
+
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+    public static final String REQUEST_ID_MDC_KEY = "requestId";
+
+    private static final Logger slowRequestLogger = LoggerFactory.getLogger("grocerystore.slow-request");
+
+    private static final int MAX_REQUEST_ID_LENGTH = 64;
+
+    private final long slowRequestNanos;
+
+    @Autowired
+    public RequestLoggingFilter(@Value("${grocerystore.logging.slow-request-ms:500}") long slowRequestMs) {
+        this.slowRequestNanos = TimeUnit.MILLISECONDS.toNanos(slowRequestMs);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long started = System.nanoTime();
+        String requestId = requestIdOf(request);
+        MDC.put(REQUEST_ID_MDC_KEY, requestId);
+        response.setHeader(REQUEST_ID_HEADER, requestId);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long elapsed = System.nanoTime() - started;
+            if (elapsed >= slowRequestNanos && slowRequestLogger.isWarnEnabled()) {
+                slowRequestLogger.warn("Slow request method={} uri={} status={} durationMs={}", request.getMethod(),
+                        request.getRequestURI(), response.getStatus(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+            }
+            MDC.remove(REQUEST_ID_MDC_KEY);
+        }
+    }
+
+    private static String requestIdOf(HttpServletRequest request) {
+        String requestId = request.getHeader(REQUEST_ID_HEADER);
+        if (requestId != null && isSafe(requestId)) {
+            return requestId;
+        }
+        return Long.toHexString(ThreadLocalRandom.current().nextLong());
+    }
+
+    // Client-supplied IDs end up in log lines, so only accept short IDs without spaces or control characters
+    private static boolean isSafe(String requestId) {
+        if (requestId.isEmpty() || requestId.length() > MAX_REQUEST_ID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < requestId.length(); i++) {
+            char c = requestId.charAt(i);
+            if (!(Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '.')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,47 @@
+package com.grocerystore.config;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.spi.FilterReply;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logback filter that lets at most maxPerSecond events through per second and drops the rest,
+ * so a burst of slow queries or requests cannot turn logging into the bottleneck. Configured in logback-spring.xml.
+ */
+public class SampledLogFilter extends Filter<ILoggingEvent> {
+
+    private int maxPerSecond = 20;
+
+    private final AtomicLong currentSecond = new AtomicLong();
+    private final AtomicInteger eventsThisSecond = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+
+    @Override
+    public FilterReply decide(ILoggingEvent event) {
+        long second = event.getTimeStamp() / 1000;
+        long current = currentSecond.get();
+        if (second > current && currentSecond.compareAndSet(current, second)) {
+            eventsThisSecond.set(0);
+        }
+        if (eventsThisSecond.incrementAndGet() <= maxPerSecond) {
+            return FilterReply.NEUTRAL;
+        }
+        dropped.incrementAndGet();
+        return FilterReply.DENY;
+    }
+
+    public void setMaxPerSecond(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    /**
+     * Get the number of events dropped so far
+     * @return dropped events
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+}
@@ -1,26 +1,34 @@
 package com.grocerystore.controller;
 
 import com.grocerystore.dto.AddToCartRequest;
+import com.grocerystore.dto.BatchCartRequest;
 import com.grocerystore.dto.CartResponse;
 import com.grocerystore.dto.UpdateCartRequest;
 import com.grocerystore.entity.CartItem;
+import com.grocerystore.service.CartExpiryJob;
 import com.grocerystore.service.CartService;
+import com.grocerystore.service.CartSummary;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/cart")
 @CrossOrigin(origins = "*") // For development - restrict in production
 public class CartController {
 
     private final CartService cartService;
+    private final CartExpiryJob cartExpiryJob;
 
     @Autowired
-    public CartController(CartService cartService) {
+    public CartController(CartService cartService, ObjectProvider<CartExpiryJob> cartExpiryJob) {
         this.cartService = cartService;
+        this.cartExpiryJob = cartExpiryJob.getIfAvailable();
     }
 
     /**
@@ -55,6 +63,23 @@ public class CartController {
         }
     }
 
+    /**
+     * POST /api/cart/batch - Apply several add/update/remove operations to a cart at once
+     * @param request the user ID and the operations, applied in order in one transaction
+     * @return the resulting cart
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> applyBatch(@Valid @RequestBody BatchCartRequest request) {
+        try {
+            CartResponse cart = cartService.applyBatch(request);
+            return ResponseEntity.ok(cart);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error applying cart operations");
+        }
+    }
+
     /**
      * PUT /api/cart/{itemId}?userId={userId} - Update cart item quantity
      * @param itemId the cart item ID
@@ -134,6 +159,21 @@ public class CartController {
         }
     }
 
+    /**
+     * GET /api/cart/summary?userId={userId} - Get cart totals without the items
+     * @param userId the user ID
+     * @return item count, subtotal and version of the cart
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<CartSummary> getCartSummary(@RequestParam String userId) {
+        try {
+            CartSummary summary = cartService.getCartSummary(userId);
+            return ResponseEntity.ok(summary);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     /**
      * GET /api/cart/check?userId={userId}&productId={productId} - Check if product is in cart
      * @param userId the user ID
@@ -151,4 +191,16 @@ public class CartController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * GET /api/cart/debug/expiry - Abandoned-cart purge statistics
+     * @return rows and carts reclaimed per run and in total, 404 if the purge is disabled
+     */
+    @GetMapping("/debug/expiry")
+    public ResponseEntity<Map<String, Object>> getExpiryStats() {
+        if (cartExpiryJob == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(cartExpiryJob.getStats());
+    }
+}
@@ -2,16 +2,18 @@ package com.grocerystore.controller;
 
 import com.grocerystore.dto.CheckoutRequest;
 import com.grocerystore.dto.OrderResponse;
+import com.grocerystore.dto.OrderSummaryPage;
 import com.grocerystore.entity.Order;
+import com.grocerystore.service.CheckoutIdempotencyStore;
 import com.grocerystore.service.OrderService;
+import com.grocerystore.service.PaymentServiceBusyException;
+import org.springframework.http.HttpHeaders;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/order")
 @CrossOrigin(origins = "*") // For development - restrict in production
@@ -25,17 +27,38 @@ public class OrderController {
     }
 
     /**
-     * POST /api/order/checkout - Process checkout and create order
+     * POST /api/order/checkout - Process checkout and create order.
+     * Payment is authorized asynchronously; poll GET /api/order/{orderId} until the status
+     * changes from PENDING to CONFIRMED or CANCELLED.
+     * With an Idempotency-Key header, retries with the same key and body return the original order
+     * (marked with Idempotent-Replayed: true) instead of placing another one.
+     * When the payment executor is full the checkout is undone and 503 is returned with a Retry-After header.
      * @param checkoutRequest the checkout request with address and payment info
-     * @return order confirmation response
+     * @param idempotencyKey optional client-generated key identifying this checkout attempt
+     * @return the pending order
      */
     @PostMapping("/checkout")
-    public ResponseEntity<?> processCheckout(@Valid @RequestBody CheckoutRequest checkoutRequest) {
+    public ResponseEntity<?> processCheckout(@Valid @RequestBody CheckoutRequest checkoutRequest,
+                                             @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
-            OrderResponse orderResponse = orderService.processCheckout(checkoutRequest);
-            return ResponseEntity.status(HttpStatus.CREATED).body(orderResponse);
+            if (idempotencyKey == null) {
+                OrderResponse orderResponse = orderService.processCheckout(checkoutRequest);
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(orderResponse);
+            }
+            CheckoutIdempotencyStore.Outcome outcome = orderService.processCheckout(checkoutRequest, idempotencyKey);
+            ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.ACCEPTED);
+            if (outcome.replayed()) {
+                response.header("Idempotent-Replayed", "true");
+            }
+            return response.body(outcome.response());
+        } catch (PaymentServiceBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body("Payment error: " + e.getMessage());
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body("Checkout error: " + e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Checkout error: " + e.getMessage());
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.PAYMENT_REQUIRED).body("Payment error: " + e.getMessage());
         } catch (Exception e) {
@@ -57,15 +80,22 @@ public class OrderController {
     }
 
     /**
-     * GET /api/order/user/{userId} - Get user's orders
+     * GET /api/order/user/{userId} - Get user's order history, newest first, one keyset page at a time.
+     * Each entry is a summary (ID, date, status, total, item count); fetch GET /api/order/{orderId} for the items.
      * @param userId the user ID
-     * @return list of user's orders
+     * @param cursor the nextCursor of the previous page, omitted for the first page
+     * @param limit the page size, omitted for the configured default
+     * @return one page of order summaries
      */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<OrderResponse>> getUserOrders(@PathVariable String userId) {
+    public ResponseEntity<OrderSummaryPage> getUserOrders(@PathVariable String userId,
+                                                          @RequestParam(required = false) String cursor,
+                                                          @RequestParam(required = false) Integer limit) {
         try {
-            List<OrderResponse> orders = orderService.getUserOrders(userId);
+            OrderSummaryPage orders = orderService.getUserOrders(userId, cursor, limit);
             return ResponseEntity.ok(orders);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -75,7 +105,7 @@ public class OrderController {
      * PUT /api/order/{orderId}/status - Update order status (admin only)
      * @param orderId the order ID
      * @param status the new status
-     * @return updated order
+     * @return updated order, or 409 if its status changed concurrently
      */
     @PutMapping("/{orderId}/status")
     public ResponseEntity<?> updateOrderStatus(
@@ -85,6 +115,8 @@ public class OrderController {
             return orderService.updateOrderStatus(orderId, status)
                     .map(order -> ResponseEntity.ok(order))
                     .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Error updating order status: " + e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error updating order status: " + e.getMessage());
         }
@@ -1,14 +1,23 @@
 package com.grocerystore.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.grocerystore.dto.ProductPage;
 import com.grocerystore.entity.Category;
 import com.grocerystore.entity.Product;
 import com.grocerystore.service.ProductService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -18,25 +27,78 @@ import java.util.stream.Collectors;
 @CrossOrigin(origins = "*") // For development - restrict in production  
 public class ProductController {
 
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final ProductService productService;
+    // One JSON document per line, regardless of the indent-output setting
+    private final ObjectWriter ndjsonWriter;
 
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ObjectMapper objectMapper) {
         this.productService = productService;
+        this.ndjsonWriter = objectMapper.writer()
+                .without(SerializationFeature.INDENT_OUTPUT)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
     }
 
+    /**
+     * GET /api/products - All products ordered by name.
+     * With cursor and/or limit, returns one keyset page ({@link ProductPage}) instead of the full list.
+     */
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
-        List<Product> products = productService.getAllProducts();
-        return ResponseEntity.ok(products);
+    public ResponseEntity<?> getAllProducts(@RequestParam(required = false) String cursor,
+                                            @RequestParam(required = false) Integer limit) {
+        if (cursor == null && limit == null) {
+            List<Product> products = productService.getAllProducts();
+            return ResponseEntity.ok(products);
+        }
+        try {
+            ProductPage page = productService.getProductPage(null, cursor, limit);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * GET /api/products/export - All products as NDJSON, streamed from the database row by row
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        StreamingResponseBody body = outputStream -> {
+            try {
+                productService.exportProducts(product -> {
+                    try {
+                        ndjsonWriter.writeValue(outputStream, product);
+                        outputStream.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            outputStream.flush();
+        };
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
     }
 
+    /**
+     * GET /api/products/{category} - Products in a category ordered by name.
+     * With cursor and/or limit, returns one keyset page ({@link ProductPage}) instead of the full list.
+     */
     @GetMapping("/{category}")
-    public ResponseEntity<List<Product>> getProductsByCategory(@PathVariable String category) {
+    public ResponseEntity<?> getProductsByCategory(@PathVariable String category,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(required = false) Integer limit) {
         try {
             Category categoryEnum = Category.valueOf(category.toUpperCase());
-            List<Product> products = productService.getProductsByCategory(categoryEnum);
-            return ResponseEntity.ok(products);
+            if (cursor == null && limit == null) {
+                List<Product> products = productService.getProductsByCategory(categoryEnum);
+                return ResponseEntity.ok(products);
+            }
+            ProductPage page = productService.getProductPage(categoryEnum, cursor, limit);
+            return ResponseEntity.ok(page);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
         }
@@ -54,6 +116,40 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    @GetMapping("/suggest")
+    public ResponseEntity<List<String>> suggestProducts(@RequestParam String prefix,
+                                                        @RequestParam(defaultValue = "10") int limit) {
+        List<String> suggestions = productService.suggestProductNames(prefix, limit);
+        return ResponseEntity.ok(suggestions);
+    }
+
+    /**
+     * GET /api/products/{id}/stock - Units available for sale right now
+     * @param id the product ID
+     * @return the available units, 404 if the product's stock is not tracked
+     */
+    @GetMapping("/{id}/stock")
+    public ResponseEntity<Long> getStock(@PathVariable Long id) {
+        return productService.getAvailableStock(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * POST /api/products/{id}/stock?delta={delta} - Restock (or write off) units of a product
+     * @param id the product ID
+     * @param delta units to add, negative to remove
+     * @return the units now available, 404 if the product does not exist
+     */
+    @PostMapping("/{id}/stock")
+    public ResponseEntity<Long> adjustStock(@PathVariable Long id, @RequestParam int delta) {
+        try {
+            return ResponseEntity.ok(productService.adjustStock(id, delta));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<Product> updateProduct(@PathVariable Long id, @Valid @RequestBody Product product) {
         try {
@@ -93,4 +189,16 @@ public class ProductController {
         
         return ResponseEntity.ok(summary);
     }
+
+    // 🔧 DEBUG ENDPOINT - Remove in production
+    @GetMapping("/debug/cache")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(productService.getCacheStats());
+    }
+
+    // 🔧 DEBUG ENDPOINT - Remove in production
+    @GetMapping("/debug/inventory")
+    public ResponseEntity<Map<String, Object>> getInventoryStats() {
+        return ResponseEntity.ok(productService.getInventoryStats());
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,126 @@
+package com.grocerystore.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+public class BatchCartRequest {
+
+    @NotNull(message = "User ID is required")
+    private String userId;
+
+    @NotEmpty(message = "At least one operation is required")
+    @Valid
+    private List<Operation> operations;
+
+    // Default constructor
+    public BatchCartRequest() {}
+
+    // Constructor
+    public BatchCartRequest(String userId, List<Operation> operations) {
+        this.userId = userId;
+        this.operations = operations;
+    }
+
+    // Getters and Setters
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public List<Operation> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<Operation> operations) {
+        this.operations = operations;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchCartRequest{" +
+                "userId='" + userId + '\'' +
+                ", operations=" + operations +
+                '}';
+    }
+
+    public enum OperationType {
+        ADD,    // productId and quantity: add to the product's line, creating it if needed
+        UPDATE, // itemId and quantity: set the line's quantity
+        REMOVE  // itemId: remove the line
+    }
+
+    // Inner class for a single cart operation
+    public static class Operation {
+
+        @NotNull(message = "Operation type is required")
+        private OperationType type;
+
+        private Long productId;
+
+        private Long itemId;
+
+        @Min(value = 1, message = "Quantity must be at least 1")
+        private Integer quantity;
+
+        // Default constructor
+        public Operation() {}
+
+        // Constructor
+        public Operation(OperationType type, Long productId, Long itemId, Integer quantity) {
+            this.type = type;
+            this.productId = productId;
+            this.itemId = itemId;
+            this.quantity = quantity;
+        }
+
+        // Getters and Setters
+        public OperationType getType() {
+            return type;
+        }
+
+        public void setType(OperationType type) {
+            this.type = type;
+        }
+
+        public Long getProductId() {
+            return productId;
+        }
+
+        public void setProductId(Long productId) {
+            this.productId = productId;
+        }
+
+        public Long getItemId() {
+            return itemId;
+        }
+
+        public void setItemId(Long itemId) {
+            this.itemId = itemId;
+        }
+
+        public Integer getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(Integer quantity) {
+            this.quantity = quantity;
+        }
+
+        @Override
+        public String toString() {
+            return "Operation{" +
+                    "type=" + type +
+                    ", productId=" + productId +
+                    ", itemId=" + itemId +
+                    ", quantity=" + quantity +
+                    '}';
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.grocerystore.dto;
 
 import com.grocerystore.entity.CartItem;
+import com.grocerystore.entity.Category;
+import com.grocerystore.util.Money;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -83,10 +85,24 @@ public class CartResponse {
                 this.productImageUrl = cartItem.getProduct().getImageUrl();
                 this.productCategory = cartItem.getProduct().getCategory().name();
                 this.productDescription = cartItem.getProduct().getDescription();
-                this.subtotal = cartItem.getProduct().getPrice().multiply(BigDecimal.valueOf(quantity));
+                this.subtotal = Money.toBigDecimal(Math.multiplyExact(cartItem.getProduct().priceMinorUnits(), quantity));
             }
         }
 
+        // Constructor for the JPQL projection in CartRepository.findItemResponsesByUserId
+        public CartItemResponse(Long id, Long productId, Integer quantity, String productName, BigDecimal productPrice,
+                                String productImageUrl, Category productCategory, String productDescription) {
+            this.id = id;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.productName = productName;
+            this.productPrice = productPrice;
+            this.productImageUrl = productImageUrl;
+            this.productCategory = productCategory.name();
+            this.productDescription = productDescription;
+            this.subtotal = Money.toBigDecimal(Math.multiplyExact(Money.toMinorUnits(productPrice), quantity));
+        }
+
         // Getters and Setters
         public Long getId() {
             return id;
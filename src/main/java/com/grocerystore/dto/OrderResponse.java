@@ -1,5 +1,6 @@
 package com.grocerystore.dto;
 
+import com.grocerystore.entity.Category;
 import com.grocerystore.entity.Order;
 import com.grocerystore.entity.OrderItem;
 
@@ -63,6 +64,30 @@ public class OrderResponse {
         }
     }
 
+    // Constructor for the JPQL projection in OrderRepository.findResponseById; items are set separately
+    public OrderResponse(Long orderId, String userId, LocalDateTime orderDate, Order.OrderStatus status,
+                         String fullName, String email, String phone,
+                         String addressLine1, String addressLine2, String city, String state, String zipCode, String country,
+                         BigDecimal subtotal, BigDecimal taxAmount, BigDecimal totalAmount,
+                         Order.PaymentMethod paymentMethod, String paymentTransactionId,
+                         LocalDateTime estimatedDeliveryDate, String deliveryInstructions) {
+        this.orderId = orderId;
+        this.userId = userId;
+        this.orderDate = orderDate;
+        this.status = status;
+        this.fullName = fullName;
+        this.email = email;
+        this.phone = phone;
+        this.shippingAddress = new AddressInfo(addressLine1, addressLine2, city, state, zipCode, country);
+        this.subtotal = subtotal;
+        this.taxAmount = taxAmount;
+        this.totalAmount = totalAmount;
+        this.paymentMethod = paymentMethod;
+        this.paymentTransactionId = paymentTransactionId;
+        this.estimatedDeliveryDate = estimatedDeliveryDate;
+        this.deliveryInstructions = deliveryInstructions;
+    }
+
     // Inner class for address information
     public static class AddressInfo {
         private String addressLine1;
@@ -126,6 +151,21 @@ public class OrderResponse {
             this.subtotal = orderItem.getSubtotal();
         }
 
+        // Constructor for the JPQL projection in OrderRepository.findResponseById
+        public OrderItemResponse(Long id, Long productId, String productName, String productDescription,
+                                 String productImageUrl, Category productCategory, BigDecimal unitPrice,
+                                 Integer quantity, BigDecimal subtotal) {
+            this.id = id;
+            this.productId = productId;
+            this.productName = productName;
+            this.productDescription = productDescription;
+            this.productImageUrl = productImageUrl;
+            this.productCategory = productCategory != null ? productCategory.name() : null;
+            this.unitPrice = unitPrice;
+            this.quantity = quantity;
+            this.subtotal = subtotal;
+        }
+
         // Getters and Setters
         public Long getId() { return id; }
         public void setId(Long id) { this.id = id; }
@@ -0,0 +1,83 @@
+package com.grocerystore.dto;
+
+import com.grocerystore.entity.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One row of a user's order history; the full order with its items is served by GET /api/order/{orderId}
+ */
+public class OrderSummary {
+
+    private Long orderId;
+    private LocalDateTime orderDate;
+    private Order.OrderStatus status;
+    private BigDecimal totalAmount;
+    private Long itemCount;
+
+    // Default constructor
+    public OrderSummary() {}
+
+    // Constructor used by the order history query
+    public OrderSummary(Long orderId, LocalDateTime orderDate, Order.OrderStatus status,
+                        BigDecimal totalAmount, Long itemCount) {
+        this.orderId = orderId;
+        this.orderDate = orderDate;
+        this.status = status;
+        this.totalAmount = totalAmount;
+        this.itemCount = itemCount;
+    }
+
+    // Getters and Setters
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public LocalDateTime getOrderDate() {
+        return orderDate;
+    }
+
+    public void setOrderDate(LocalDateTime orderDate) {
+        this.orderDate = orderDate;
+    }
+
+    public Order.OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(Order.OrderStatus status) {
+        this.status = status;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public Long getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(Long itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderSummary{" +
+                "orderId=" + orderId +
+                ", orderDate=" + orderDate +
+                ", status=" + status +
+                ", totalAmount=" + totalAmount +
+                ", itemCount=" + itemCount +
+                '}';
+    }
+}
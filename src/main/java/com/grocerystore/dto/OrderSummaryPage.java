@@ -0,0 +1,45 @@
+package com.grocerystore.dto;
+
+import java.util.List;
+
+public class OrderSummaryPage {
+
+    private List<OrderSummary> items;
+    private String nextCursor;
+    private Integer limit;
+
+    // Default constructor
+    public OrderSummaryPage() {}
+
+    // Constructor
+    public OrderSummaryPage(List<OrderSummary> items, String nextCursor, Integer limit) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.limit = limit;
+    }
+
+    // Getters and Setters
+    public List<OrderSummary> getItems() {
+        return items;
+    }
+
+    public void setItems(List<OrderSummary> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+}
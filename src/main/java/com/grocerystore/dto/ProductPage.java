@@ -0,0 +1,47 @@
+package com.grocerystore.dto;
+
+import com.grocerystore.entity.Product;
+
+import java.util.List;
+
+public class ProductPage {
+
+    private List<Product> items;
+    private String nextCursor;
+    private Integer limit;
+
+    // Default constructor
+    public ProductPage() {}
+
+    // Constructor
+    public ProductPage(List<Product> items, String nextCursor, Integer limit) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.limit = limit;
+    }
+
+    // Getters and Setters
+    public List<Product> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Product> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+}
@@ -4,8 +4,14 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 
+import java.time.LocalDateTime;
+
 @Entity
-@Table(name = "cart_items")
+// One line per product in a user's cart; quantities of repeated adds are merged into that line.
+// The unique (userId, productId) index also serves lookups by userId alone.
+@Table(name = "cart_items", uniqueConstraints = @UniqueConstraint(name = "uk_cart_items_user_product",
+        columnNames = {"userId", "productId"}),
+        indexes = @Index(name = "idx_cart_items_product", columnList = "productId"))
 public class CartItem {
 
     @Id
@@ -30,6 +36,10 @@ public class CartItem {
     @JoinColumn(name = "productId", insertable = false, updatable = false)
     private Product product;
 
+    // When the line was last written; carts whose lines are all older than the expiry TTL are purged
+    @Column(nullable = false)
+    private LocalDateTime lastModified;
+
     // Default constructor
     public CartItem() {}
 
@@ -81,6 +91,20 @@ public class CartItem {
         this.product = product;
     }
 
+    public LocalDateTime getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(LocalDateTime lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        lastModified = LocalDateTime.now();
+    }
+
     @Override
     public String toString() {
         return "CartItem{" +
@@ -88,6 +112,7 @@ public class CartItem {
                 ", productId=" + productId +
                 ", userId='" + userId + '\'' +
                 ", quantity=" + quantity +
+                ", lastModified=" + lastModified +
                 '}';
     }
 } 
\ No newline at end of file
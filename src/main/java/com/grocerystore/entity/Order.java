@@ -9,11 +9,17 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // Order history pages: newest first per user, keyset on (orderDate, id)
+        @Index(name = "idx_orders_user_date", columnList = "userId, orderDate, id"),
+        @Index(name = "idx_orders_status_date", columnList = "status, orderDate")
+})
 public class Order {
 
+    // Sequence with a pooled optimizer (not IDENTITY) so inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "User ID is required")
@@ -1,5 +1,6 @@
 package com.grocerystore.entity;
 
+import com.grocerystore.util.Money;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
@@ -8,11 +9,13 @@ import jakarta.validation.constraints.NotNull;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "order_items")
+@Table(name = "order_items", indexes = @Index(name = "idx_order_items_order", columnList = "order_id"))
 public class OrderItem {
 
+    // Sequence with a pooled optimizer (not IDENTITY) so inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_items_seq")
+    @SequenceGenerator(name = "order_items_seq", sequenceName = "order_items_seq", allocationSize = 50)
     private Long id;
 
     @NotNull(message = "Order is required")
@@ -59,7 +62,7 @@ public class OrderItem {
         this.productName = productName;
         this.unitPrice = unitPrice;
         this.quantity = quantity;
-        this.subtotal = unitPrice.multiply(BigDecimal.valueOf(quantity));
+        this.subtotal = Money.of(unitPrice).times(quantity).toBigDecimal();
         this.productDescription = productDescription;
         this.productImageUrl = productImageUrl;
         this.productCategory = productCategory;
@@ -114,7 +117,7 @@ public class OrderItem {
         this.quantity = quantity;
         // Recalculate subtotal when quantity changes
         if (this.unitPrice != null && quantity != null) {
-            this.subtotal = this.unitPrice.multiply(BigDecimal.valueOf(quantity));
+            this.subtotal = Money.of(this.unitPrice).times(quantity).toBigDecimal();
         }
     }
 
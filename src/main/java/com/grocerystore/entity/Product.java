@@ -1,14 +1,17 @@
 package com.grocerystore.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.grocerystore.util.Money;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = @Index(name = "idx_products_category_name", columnList = "category, name"))
 public class Product {
 
     @Id
@@ -34,6 +37,23 @@ public class Product {
     @Column(length = 1000)
     private String description;
 
+    // Units on hand, or null if stock is not tracked for this product. Set on insert only: afterwards
+    // InventoryLedger owns the column, so saving a product loaded earlier cannot overwrite stock sold since.
+    // Not part of the product JSON, which would show the last flushed value rather than the units available now
+    @JsonIgnore
+    @PositiveOrZero(message = "Stock cannot be negative")
+    @Column(updatable = false)
+    private Integer stock;
+
+    // Price in cents with the price it was derived from, so cart and order totals need no BigDecimal arithmetic.
+    // Hibernate writes price directly on load, refresh and merge, so the cache is checked against the current price
+    @Transient
+    private volatile PriceInCents priceInCents;
+
+    // Set on the copies the catalog cache shares between requests, which no session manages and no caller may change
+    @Transient
+    private boolean readOnly;
+
     // Default constructor
     public Product() {}
 
@@ -52,6 +72,7 @@ public class Product {
     }
 
     public void setId(Long id) {
+        checkWritable();
         this.id = id;
     }
 
@@ -60,6 +81,7 @@ public class Product {
     }
 
     public void setName(String name) {
+        checkWritable();
         this.name = name;
     }
 
@@ -68,6 +90,7 @@ public class Product {
     }
 
     public void setCategory(Category category) {
+        checkWritable();
         this.category = category;
     }
 
@@ -76,14 +99,30 @@ public class Product {
     }
 
     public void setPrice(BigDecimal price) {
+        checkWritable();
         this.price = price;
     }
 
+    /**
+     * Get the price in minor units (cents), rounded half-even
+     * @return the price in cents
+     */
+    public long priceMinorUnits() {
+        PriceInCents cached = priceInCents;
+        BigDecimal current = price;
+        if (cached == null || cached.price() != current) {
+            cached = new PriceInCents(current, Money.toMinorUnits(current));
+            priceInCents = cached;
+        }
+        return cached.minorUnits();
+    }
+
     public String getImageUrl() {
         return imageUrl;
     }
 
     public void setImageUrl(String imageUrl) {
+        checkWritable();
         this.imageUrl = imageUrl;
     }
 
@@ -92,9 +131,40 @@ public class Product {
     }
 
     public void setDescription(String description) {
+        checkWritable();
         this.description = description;
     }
 
+    public Integer getStock() {
+        return stock;
+    }
+
+    public void setStock(Integer stock) {
+        checkWritable();
+        this.stock = stock;
+    }
+
+    /**
+     * Get a read-only copy of this product, detached from any persistence context
+     * @return a copy whose setters throw, or this product if it is already such a copy
+     */
+    public Product readOnlyCopy() {
+        if (readOnly) {
+            return this;
+        }
+        Product copy = new Product(name, category, price, imageUrl, description);
+        copy.id = id;
+        copy.stock = stock;
+        copy.readOnly = true;
+        return copy;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Product " + id + " is a shared catalog copy; load it to change it");
+        }
+    }
+
     @Override
     public String toString() {
         return "Product{" +
@@ -104,6 +174,9 @@ public class Product {
                 ", price=" + price +
                 ", imageUrl='" + imageUrl + '\'' +
                 ", description='" + description + '\'' +
+                ", stock=" + stock +
                 '}';
     }
-} 
\ No newline at end of file
+
+    private record PriceInCents(BigDecimal price, long minorUnits) {}
+}
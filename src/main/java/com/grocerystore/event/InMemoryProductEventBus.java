@@ -0,0 +1,75 @@
+package com.grocerystore.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Delivers product change events synchronously to the listeners in this process, so a request that changed
+ * a product reads its own write from every cache. Events are also handed to the ProductEventTransport, if one
+ * is configured, and events it receives from other instances are delivered to the local listeners.
+ * Listeners are called in order; one that throws is logged and skipped, and the others still get the event.
+ */
+@Component
+public class InMemoryProductEventBus implements ProductEventBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryProductEventBus.class);
+
+    private final List<ProductChangeListener> listeners;
+    private final ProductEventTransport transport;
+
+    @Autowired
+    public InMemoryProductEventBus(List<ProductChangeListener> listeners,
+                                   ObjectProvider<ProductEventTransport> transport) {
+        this.listeners = new CopyOnWriteArrayList<>(listeners);
+        this.transport = transport.getIfAvailable();
+        if (this.transport != null) {
+            this.transport.setReceiver(this::deliver);
+        }
+    }
+
+    @Override
+    public void publish(ProductChangeEvent event) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(event);
+                }
+            });
+        } else {
+            dispatch(event);
+        }
+    }
+
+    @Override
+    public void subscribe(ProductChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    private void dispatch(ProductChangeEvent event) {
+        deliver(event);
+        if (transport != null) {
+            transport.send(event);
+        }
+    }
+
+    private void deliver(ProductChangeEvent event) {
+        logger.debug("Delivering {}", event);
+        for (ProductChangeListener listener : listeners) {
+            // A failing listener must not keep the event from the ones after it, nor from the transport
+            try {
+                listener.onProductChange(event);
+            } catch (RuntimeException e) {
+                logger.error("Product change listener {} failed on {}", listener, event, e);
+            }
+        }
+    }
+}
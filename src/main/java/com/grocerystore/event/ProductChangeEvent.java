@@ -0,0 +1,70 @@
+package com.grocerystore.event;
+
+import com.grocerystore.entity.Product;
+
+/**
+ * A change to the product catalog, published after the change has been written.
+ */
+public final class ProductChangeEvent {
+
+    public enum Type {
+        SAVED,           // product created or updated; carries a read-only copy of the saved product
+        DELETED,         // product deleted
+        CATALOG_RELOADED // products were written in bulk; everything derived from the catalog must be rebuilt
+    }
+
+    private final Type type;
+    private final Long productId;
+    private final Product product;
+    private final boolean priceChanged;
+
+    private ProductChangeEvent(Type type, Long productId, Product product, boolean priceChanged) {
+        this.type = type;
+        this.productId = productId;
+        this.product = product;
+        this.priceChanged = priceChanged;
+    }
+
+    /**
+     * A product was created or updated
+     * @param product the saved product; listeners get a read-only copy, as they may keep it
+     * @param priceChanged whether an existing product's price changed
+     * @return the event
+     */
+    public static ProductChangeEvent saved(Product product, boolean priceChanged) {
+        return new ProductChangeEvent(Type.SAVED, product.getId(), product.readOnlyCopy(), priceChanged);
+    }
+
+    public static ProductChangeEvent deleted(Long productId) {
+        return new ProductChangeEvent(Type.DELETED, productId, null, false);
+    }
+
+    public static ProductChangeEvent catalogReloaded() {
+        return new ProductChangeEvent(Type.CATALOG_RELOADED, null, null, false);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    public boolean isPriceChanged() {
+        return priceChanged;
+    }
+
+    @Override
+    public String toString() {
+        return "ProductChangeEvent{" +
+                "type=" + type +
+                ", productId=" + productId +
+                ", priceChanged=" + priceChanged +
+                '}';
+    }
+}
@@ -0,0 +1,18 @@
+package com.grocerystore.event;
+
+/**
+ * Receives product change events. Beans implementing this interface are subscribed to the
+ * ProductEventBus automatically, in @Order: the catalog and its indexes are updated first,
+ * then caches that read prices from the catalog.
+ */
+@FunctionalInterface
+public interface ProductChangeListener {
+
+    /** Order of listeners that hold catalog data */
+    int CATALOG_ORDER = 0;
+
+    /** Order of listeners that derive data from the catalog, such as cart totals */
+    int DERIVED_ORDER = 100;
+
+    void onProductChange(ProductChangeEvent event);
+}
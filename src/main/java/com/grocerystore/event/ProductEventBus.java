@@ -0,0 +1,19 @@
+package com.grocerystore.event;
+
+/**
+ * In-process stream of product change events.
+ */
+public interface ProductEventBus {
+
+    /**
+     * Publish an event to all listeners, after the current transaction commits if there is one
+     * @param event the event
+     */
+    void publish(ProductChangeEvent event);
+
+    /**
+     * Add a listener after the listener beans
+     * @param listener the listener
+     */
+    void subscribe(ProductChangeListener listener);
+}
@@ -0,0 +1,23 @@
+package com.grocerystore.event;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries product change events between application instances.
+ * Without a transport bean events stay in the local process; a multi-node deployment registers
+ * one (e.g. backed by a message broker) so every node's caches see every node's writes.
+ */
+public interface ProductEventTransport {
+
+    /**
+     * Send a locally published event to the other instances
+     * @param event the event
+     */
+    void send(ProductChangeEvent event);
+
+    /**
+     * Register the callback for events received from other instances
+     * @param receiver delivers a received event to the local listeners
+     */
+    void setReceiver(Consumer<ProductChangeEvent> receiver);
+}
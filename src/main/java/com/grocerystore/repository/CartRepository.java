@@ -1,16 +1,22 @@
 package com.grocerystore.repository;
 
 import com.grocerystore.entity.CartItem;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CartRepository extends JpaRepository<CartItem, Long> {
+public interface CartRepository extends JpaRepository<CartItem, Long>, CartRepositoryCustom {
     
     /**
      * Find all cart items for a specific user
@@ -48,4 +54,86 @@ public interface CartRepository extends JpaRepository<CartItem, Long> {
      */
     @Query("SELECT c FROM CartItem c JOIN FETCH c.product p WHERE c.userId = :userId ORDER BY c.id")
     List<CartItem> findByUserIdWithProducts(@Param("userId") String userId);
-} 
\ No newline at end of file
+
+    /**
+     * Read a cart item's quantity and lock its row until the transaction ends, so it cannot change before the
+     * caller's update or delete. A scalar query, so the value is read from the row even if the item is managed
+     * @param id the cart item ID
+     * @return the quantity, empty if the item does not exist
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c.quantity FROM CartItem c WHERE c.id = :id")
+    Optional<Integer> findQuantityForUpdate(@Param("id") Long id);
+
+    /**
+     * Read the lines of a user's cart and lock their rows until the transaction ends
+     * @param userId the user ID
+     * @return the lines' IDs, products and quantities
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c.id AS id, c.productId AS productId, c.quantity AS quantity FROM CartItem c WHERE c.userId = :userId")
+    List<LineQuantity> findLineQuantitiesForUpdate(@Param("userId") String userId);
+
+    /**
+     * Set the quantity of a cart item without loading it
+     * @param id the cart item ID
+     * @param quantity the new quantity
+     * @param lastModified the time of the change
+     * @return number of rows updated
+     */
+    @Modifying
+    @Query("UPDATE CartItem c SET c.quantity = :quantity, c.lastModified = :lastModified WHERE c.id = :id")
+    int updateQuantity(@Param("id") Long id, @Param("quantity") Integer quantity,
+                       @Param("lastModified") LocalDateTime lastModified);
+
+    /**
+     * Delete a cart item without loading it first
+     * @param id the cart item ID
+     * @return number of rows deleted (0 if the item did not exist or was removed concurrently)
+     */
+    @Modifying
+    @Query("DELETE FROM CartItem c WHERE c.id = :id")
+    int deleteItemById(@Param("id") Long id);
+
+    /**
+     * Delete cart items without loading them first
+     * @param ids the cart item IDs
+     * @return number of rows deleted
+     */
+    @Modifying
+    @Query("DELETE FROM CartItem c WHERE c.id IN :ids")
+    int deleteItemsByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Find users whose carts have not been modified since a cutoff, in user ID order
+     * @param afterUserId only return user IDs greater than this one (keyset for the next page)
+     * @param cutoff carts with no line modified at or after this time are abandoned
+     * @param pageable limits the number of user IDs returned
+     * @return the user IDs
+     */
+    @Query("SELECT c.userId FROM CartItem c WHERE c.userId > :afterUserId "
+            + "GROUP BY c.userId HAVING MAX(c.lastModified) < :cutoff ORDER BY c.userId")
+    List<String> findAbandonedUserIds(@Param("afterUserId") String afterUserId,
+                                      @Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    /**
+     * Delete the carts of the given users that are still abandoned, so a cart modified since it was
+     * selected is kept whole
+     * @param userIds the user IDs
+     * @param cutoff carts with no line modified at or after this time are abandoned
+     * @return number of rows deleted
+     */
+    @Modifying
+    @Query("DELETE FROM CartItem c WHERE c.userId IN :userIds AND NOT EXISTS "
+            + "(SELECT n.id FROM CartItem n WHERE n.userId = c.userId AND n.lastModified >= :cutoff)")
+    int deleteAbandoned(@Param("userIds") Collection<String> userIds, @Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * A cart line's quantity, read without loading the line
+     */
+    interface LineQuantity {
+        Long getId();
+        Long getProductId();
+        Integer getQuantity();
+    }
+}
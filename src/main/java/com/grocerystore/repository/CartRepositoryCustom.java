@@ -0,0 +1,39 @@
+package com.grocerystore.repository;
+
+import com.grocerystore.dto.CartResponse;
+import com.grocerystore.entity.CartItem;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Cart queries that cannot be expressed as derived or annotated repository methods, or that are
+ * too hot to pay for the per-call query processing of an annotated one
+ */
+public interface CartRepositoryCustom {
+
+    /**
+     * Atomically add quantity to a user's line for a product, inserting the line if it does not exist
+     * @param userId the user ID
+     * @param productId the product ID
+     * @param quantity the quantity to add
+     * @return the resulting cart item
+     */
+    CartItem upsertQuantity(String userId, Long productId, Integer quantity);
+
+    /**
+     * Read a user's cart lines straight into response DTOs, selecting only the rendered columns
+     * @param userId the user ID
+     * @return cart line responses ordered by cart item ID
+     */
+    List<CartResponse.CartItemResponse> findItemResponsesByUserId(String userId);
+
+    /**
+     * Write buffered cart changes as one JDBC batch per kind of change, on the current transaction's connection
+     * @param inserts lines to insert under the IDs they already have
+     * @param updates lines whose quantity to write
+     * @param deletes lines whose rows to delete
+     * @param modified the time of the changes
+     */
+    void writeBatch(List<CartItem> inserts, List<CartItem> updates, List<CartItem> deletes, LocalDateTime modified);
+}
@@ -0,0 +1,163 @@
+package com.grocerystore.repository;
+
+import com.grocerystore.dto.CartResponse;
+import com.grocerystore.entity.CartItem;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Upsert for cart lines, backed by the (userId, productId) unique constraint on cart_items.
+ * The MERGE increments the quantity in the database, so concurrent adds never lose an increment.
+ * Two concurrent adds of a new line can both take the insert branch; the loser fails on the unique
+ * constraint, rolls back to its savepoint and retries, which then takes the update branch.
+ * The statement runs through JDBC on the transaction's connection so a lost race does not mark
+ * the surrounding JPA transaction rollback-only. Other entities in the caller's persistence context stay
+ * managed; only a line the caller had already loaded is refreshed with the merged quantity.
+ * The cart read is a JPQL constructor projection run on the EntityManager: no entities are hydrated, and the
+ * query string goes straight to Hibernate's plan cache instead of being reprocessed by Spring Data on every call.
+ * Write-behind batches are plain JDBC batches, one round trip per kind of change rather than one statement per line.
+ */
+public class CartRepositoryCustomImpl implements CartRepositoryCustom {
+
+    private static final String UPSERT_SQL = "MERGE INTO cart_items AS t "
+            + "USING (VALUES (CAST(? AS VARCHAR(255)), CAST(? AS BIGINT), CAST(? AS INTEGER), CAST(? AS TIMESTAMP))) "
+            + "AS s (user_id, product_id, quantity, last_modified) "
+            + "ON t.user_id = s.user_id AND t.product_id = s.product_id "
+            + "WHEN MATCHED THEN UPDATE SET quantity = t.quantity + s.quantity, last_modified = s.last_modified "
+            + "WHEN NOT MATCHED THEN INSERT (user_id, product_id, quantity, last_modified) "
+            + "VALUES (s.user_id, s.product_id, s.quantity, s.last_modified)";
+
+    private static final String ITEM_RESPONSES_JPQL = "SELECT new com.grocerystore.dto.CartResponse$CartItemResponse("
+            + "c.id, c.productId, c.quantity, p.name, p.price, p.imageUrl, p.category, p.description) "
+            + "FROM CartItem c JOIN c.product p WHERE c.userId = :userId ORDER BY c.id";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO cart_items (id, user_id, product_id, quantity, last_modified) VALUES (?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE cart_items SET quantity = ?, last_modified = ? WHERE id = ?";
+    private static final String DELETE_SQL = "DELETE FROM cart_items WHERE id = ?";
+
+    // The insert race can only be lost once per line, so a few attempts is plenty
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public CartRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public CartItem upsertQuantity(String userId, Long productId, Integer quantity) {
+        // A JPQL query on cart_items: Hibernate flushes pending changes to cart lines before it, so the MERGE sees
+        // them and the refresh below cannot discard them, and leaves changes to other tables pending
+        List<Long> ids = entityManager.createQuery(
+                        "SELECT c.id FROM CartItem c WHERE c.userId = :userId AND c.productId = :productId", Long.class)
+                .setParameter("userId", userId)
+                .setParameter("productId", productId)
+                .getResultList();
+        Long id = ids.isEmpty() ? null : ids.get(0);
+        // A line the caller already loaded still holds its state from before the MERGE
+        CartItem loaded = null;
+        if (id != null) {
+            CartItem reference = entityManager.getReference(CartItem.class, id);
+            if (Hibernate.isInitialized(reference)) {
+                loaded = (CartItem) Hibernate.unproxy(reference);
+            }
+        }
+
+        LocalDateTime modified = LocalDateTime.now();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                merge(userId, productId, quantity, modified);
+                break;
+            } catch (DataIntegrityViolationException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+
+        if (loaded != null) {
+            entityManager.refresh(loaded);
+            return loaded;
+        }
+        if (id != null) {
+            return (CartItem) Hibernate.unproxy(entityManager.find(CartItem.class, id));
+        }
+        return entityManager.createQuery(
+                        "SELECT c FROM CartItem c WHERE c.userId = :userId AND c.productId = :productId", CartItem.class)
+                .setParameter("userId", userId)
+                .setParameter("productId", productId)
+                .getSingleResult();
+    }
+
+    @Override
+    public List<CartResponse.CartItemResponse> findItemResponsesByUserId(String userId) {
+        return entityManager.createQuery(ITEM_RESPONSES_JPQL, CartResponse.CartItemResponse.class)
+                .setParameter("userId", userId)
+                .getResultList();
+    }
+
+    @Override
+    public void writeBatch(List<CartItem> inserts, List<CartItem> updates, List<CartItem> deletes, LocalDateTime modified) {
+        Timestamp timestamp = Timestamp.valueOf(modified);
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, inserts, inserts.size(), (statement, line) -> {
+                statement.setLong(1, line.getId());
+                statement.setString(2, line.getUserId());
+                statement.setLong(3, line.getProductId());
+                statement.setInt(4, line.getQuantity());
+                statement.setTimestamp(5, timestamp);
+            });
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, updates, updates.size(), (statement, line) -> {
+                statement.setInt(1, line.getQuantity());
+                statement.setTimestamp(2, timestamp);
+                statement.setLong(3, line.getId());
+            });
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_SQL, deletes, deletes.size(),
+                    (statement, line) -> statement.setLong(1, line.getId()));
+        }
+    }
+
+    private void merge(String userId, Long productId, Integer quantity, LocalDateTime modified) {
+        jdbcTemplate.execute((Connection connection) -> {
+            // Some databases abort the whole transaction on a failed statement unless it is rolled back to a savepoint
+            Savepoint savepoint = connection.getAutoCommit() ? null : connection.setSavepoint();
+            try (PreparedStatement statement = connection.prepareStatement(UPSERT_SQL)) {
+                statement.setString(1, userId);
+                statement.setLong(2, productId);
+                statement.setInt(3, quantity);
+                statement.setTimestamp(4, Timestamp.valueOf(modified));
+                int rows = statement.executeUpdate();
+                if (savepoint != null) {
+                    connection.releaseSavepoint(savepoint);
+                }
+                return rows;
+            } catch (SQLException e) {
+                if (savepoint != null) {
+                    connection.rollback(savepoint);
+                }
+                throw e;
+            }
+        });
+    }
+}
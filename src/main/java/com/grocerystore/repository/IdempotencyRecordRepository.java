@@ -0,0 +1,39 @@
+package com.grocerystore.repository;
+
+import com.grocerystore.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    /**
+     * Find the stored result of a user's request
+     * @param userId the user ID
+     * @param idempotencyKey the client's Idempotency-Key
+     * @return optional record if the request completed before
+     */
+    Optional<IdempotencyRecord> findByUserIdAndIdempotencyKey(String userId, String idempotencyKey);
+
+    /**
+     * Delete the stored result of a user's request
+     * @param userId the user ID
+     * @param idempotencyKey the client's Idempotency-Key
+     */
+    void deleteByUserIdAndIdempotencyKey(String userId, String idempotencyKey);
+
+    /**
+     * Delete records created before a cutoff
+     * @param cutoff records older than this are deleted
+     * @return number of rows deleted
+     */
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
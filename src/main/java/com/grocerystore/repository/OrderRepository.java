@@ -1,7 +1,10 @@
 package com.grocerystore.repository;
 
+import com.grocerystore.dto.OrderSummary;
 import com.grocerystore.entity.Order;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -11,7 +14,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
     
     /**
      * Find all orders for a specific user
@@ -44,20 +47,63 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByOrderDateBetweenOrderByOrderDateDesc(LocalDateTime startDate, LocalDateTime endDate);
     
     /**
-     * Find order with items loaded
-     * @param orderId the order ID
-     * @return optional order with items
+     * First page of a user's order history, newest first, as summaries with their line counts
+     * @param userId the user ID
+     * @param pageable limits the number of orders returned
+     * @return order summaries ordered by date, then ID, descending
      */
-    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.orderItems WHERE o.id = :orderId")
-    Optional<Order> findByIdWithItems(@Param("orderId") Long orderId);
-    
+    @Query("SELECT new com.grocerystore.dto.OrderSummary(o.id, o.orderDate, o.status, o.totalAmount, COUNT(i)) " +
+           "FROM Order o LEFT JOIN o.orderItems i WHERE o.userId = :userId " +
+           "GROUP BY o.id, o.orderDate, o.status, o.totalAmount ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderSummary> findSummariesByUserId(@Param("userId") String userId, Pageable pageable);
+
     /**
-     * Find user orders with items loaded
+     * Next page of a user's order history: the orders placed before the last one of the previous page
      * @param userId the user ID
-     * @return list of orders with items
+     * @param beforeDate order date of the last order on the previous page
+     * @param beforeId ID of the last order on the previous page
+     * @param pageable limits the number of orders returned
+     * @return order summaries ordered by date, then ID, descending
+     */
+    @Query("SELECT new com.grocerystore.dto.OrderSummary(o.id, o.orderDate, o.status, o.totalAmount, COUNT(i)) " +
+           "FROM Order o LEFT JOIN o.orderItems i WHERE o.userId = :userId " +
+           "AND (o.orderDate < :beforeDate OR (o.orderDate = :beforeDate AND o.id < :beforeId)) " +
+           "GROUP BY o.id, o.orderDate, o.status, o.totalAmount ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderSummary> findSummariesByUserIdBefore(@Param("userId") String userId,
+                                                   @Param("beforeDate") LocalDateTime beforeDate,
+                                                   @Param("beforeId") Long beforeId,
+                                                   Pageable pageable);
+    
+    /**
+     * Find the IDs of orders in a status that were placed before a cutoff, oldest first
+     * @param status the order status
+     * @param cutoff only orders placed before this time are returned
+     * @param pageable limits the number of IDs returned
+     * @return the order IDs
+     */
+    @Query("SELECT o.id FROM Order o WHERE o.status = :status AND o.orderDate < :cutoff ORDER BY o.orderDate")
+    List<Long> findIdsByStatusPlacedBefore(@Param("status") Order.OrderStatus status,
+                                           @Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    /**
+     * Find the payment transaction ID of an order
+     * @param id the order ID
+     * @return the payment transaction ID, empty if the order does not exist
+     */
+    @Query("SELECT o.paymentTransactionId FROM Order o WHERE o.id = :id")
+    Optional<String> findPaymentTransactionIdById(@Param("id") Long id);
+
+    /**
+     * Move an order from one status to another, only if it is still in the expected status
+     * @param id the order ID
+     * @param expected the status the order must be in
+     * @param status the new status
+     * @return number of rows updated (0 if the order is missing or already left the expected status)
      */
-    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.orderItems WHERE o.userId = :userId ORDER BY o.orderDate DESC")
-    List<Order> findByUserIdWithItems(@Param("userId") String userId);
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :status WHERE o.id = :id AND o.status = :expected")
+    int updateStatusIfCurrent(@Param("id") Long id, @Param("expected") Order.OrderStatus expected,
+                              @Param("status") Order.OrderStatus status);
     
     /**
      * Count orders by user
@@ -0,0 +1,18 @@
+package com.grocerystore.repository;
+
+import com.grocerystore.dto.OrderResponse;
+
+import java.util.Optional;
+
+/**
+ * Order reads that bypass entity hydration
+ */
+public interface OrderRepositoryCustom {
+
+    /**
+     * Read an order and its items straight into response DTOs, selecting only the rendered columns
+     * @param orderId the order ID
+     * @return optional order response with its items ordered by item ID
+     */
+    Optional<OrderResponse> findResponseById(Long orderId);
+}
@@ -0,0 +1,44 @@
+package com.grocerystore.repository;
+
+import com.grocerystore.dto.OrderResponse;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Order read as two JPQL constructor projections run on the EntityManager: one row for the order and one per item,
+ * instead of a fetch join that repeats every order column on each item row and hydrates managed entities.
+ * The query strings go straight to Hibernate's plan cache instead of being reprocessed by Spring Data on every call.
+ */
+public class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+
+    private static final String ORDER_RESPONSE_JPQL = "SELECT new com.grocerystore.dto.OrderResponse("
+            + "o.id, o.userId, o.orderDate, o.status, o.fullName, o.email, o.phone, "
+            + "o.addressLine1, o.addressLine2, o.city, o.state, o.zipCode, o.country, "
+            + "o.subtotal, o.taxAmount, o.totalAmount, o.paymentMethod, o.paymentTransactionId, "
+            + "o.estimatedDeliveryDate, o.deliveryInstructions) FROM Order o WHERE o.id = :orderId";
+
+    private static final String ITEM_RESPONSES_JPQL = "SELECT new com.grocerystore.dto.OrderResponse$OrderItemResponse("
+            + "i.id, i.productId, i.productName, i.productDescription, i.productImageUrl, i.productCategory, "
+            + "i.unitPrice, i.quantity, i.subtotal) FROM OrderItem i WHERE i.order.id = :orderId ORDER BY i.id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<OrderResponse> findResponseById(Long orderId) {
+        List<OrderResponse> orders = entityManager.createQuery(ORDER_RESPONSE_JPQL, OrderResponse.class)
+                .setParameter("orderId", orderId)
+                .getResultList();
+        if (orders.isEmpty()) {
+            return Optional.empty();
+        }
+        OrderResponse response = orders.get(0);
+        response.setItems(entityManager.createQuery(ITEM_RESPONSES_JPQL, OrderResponse.OrderItemResponse.class)
+                .setParameter("orderId", orderId)
+                .getResultList());
+        return Optional.of(response);
+    }
+}
@@ -2,10 +2,18 @@ package com.grocerystore.repository;
 
 import com.grocerystore.entity.Category;
 import com.grocerystore.entity.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
@@ -29,4 +37,30 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
      * @return list of all products ordered by name
      */
     List<Product> findAllByOrderByNameAsc();
-} 
\ No newline at end of file
+    
+    /**
+     * Stream all products ordered by name, then ID, fetching rows from the cursor in chunks.
+     * Must be consumed inside a transaction and closed afterwards.
+     * @return stream of all products
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<Product> streamAllByOrderByNameAscIdAsc();
+
+    /**
+     * Get the units on hand of a product
+     * @param id the product ID
+     * @return the stock, empty if the product does not exist or its stock is not tracked
+     */
+    @Query("SELECT p.stock FROM Product p WHERE p.id = :id")
+    Optional<Integer> findStockById(@Param("id") Long id);
+
+    /**
+     * Add to the units on hand of a product, starting to track its stock if it was not tracked
+     * @param id the product ID
+     * @param delta the units to add (negative to remove)
+     * @return number of rows updated
+     */
+    @Modifying
+    @Query("UPDATE Product p SET p.stock = COALESCE(p.stock, 0) + :delta WHERE p.id = :id")
+    int adjustStock(@Param("id") Long id, @Param("delta") int delta);
+}
@@ -0,0 +1,200 @@
+package com.grocerystore.service;
+
+import com.grocerystore.repository.CartRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Purges abandoned carts: carts none of whose lines were modified within the TTL.
+ * Each run walks the abandoned users in user ID order and deletes their carts in batches, each in its own
+ * short transaction. Between batches it pauses for at least as long as the previous batch took, so the purge
+ * slows down when the database is busy, and backs off exponentially after a failed batch.
+ * Totals and the figures of the last run are published as grocerystore.cart.expiry.* meters.
+ */
+@Component
+@ConditionalOnProperty(name = "grocerystore.cart.expiry.enabled", havingValue = "true", matchIfMissing = true)
+public class CartExpiryJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartExpiryJob.class);
+
+    // Give up on a run after this many failed batches in a row; the next run starts over
+    private static final int MAX_CONSECUTIVE_FAILURES = 3;
+
+    private final CartRepository cartRepository;
+    private final CartStore cartStore;
+    private final CartSummaryCache summaryCache;
+    private final Duration ttl;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long pauseMs;
+    private final long maxBackoffMs;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong rowsReclaimed = new AtomicLong();
+    private final AtomicLong cartsReclaimed = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private volatile RunStats lastRun;
+
+    @Autowired
+    public CartExpiryJob(CartRepository cartRepository, CartStore cartStore, CartSummaryCache summaryCache,
+                         MeterRegistry meterRegistry,
+                         @Value("${grocerystore.cart.expiry.ttl:30d}") Duration ttl,
+                         @Value("${grocerystore.cart.expiry.batch-size:200}") int batchSize,
+                         @Value("${grocerystore.cart.expiry.max-batches-per-run:100}") int maxBatchesPerRun,
+                         @Value("${grocerystore.cart.expiry.pause-ms:100}") long pauseMs,
+                         @Value("${grocerystore.cart.expiry.max-backoff-ms:10000}") long maxBackoffMs) {
+        if (ttl.isNegative() || ttl.isZero() || batchSize <= 0 || maxBatchesPerRun <= 0) {
+            throw new IllegalArgumentException("Cart expiry TTL, batch size and batches per run must be positive");
+        }
+        this.cartRepository = cartRepository;
+        this.cartStore = cartStore;
+        this.summaryCache = summaryCache;
+        this.ttl = ttl;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.pauseMs = Math.max(0, pauseMs);
+        this.maxBackoffMs = Math.max(this.pauseMs, maxBackoffMs);
+        registerMeters(meterRegistry);
+    }
+
+    /**
+     * Delete abandoned carts, at most maxBatchesPerRun batches of batchSize carts per run
+     */
+    @Scheduled(initialDelayString = "${grocerystore.cart.expiry.interval-ms:3600000}",
+            fixedDelayString = "${grocerystore.cart.expiry.interval-ms:3600000}")
+    public void purge() {
+        long started = System.nanoTime();
+        LocalDateTime cutoff = LocalDateTime.now().minus(ttl);
+        String afterUserId = "";
+        long pause = pauseMs;
+        int batches = 0;
+        int failures = 0;
+        long rows = 0;
+        long carts = 0;
+
+        while (batches < maxBatchesPerRun) {
+            long batchStarted = System.nanoTime();
+            try {
+                List<String> userIds = cartRepository.findAbandonedUserIds(afterUserId, cutoff, PageRequest.of(0, batchSize));
+                if (userIds.isEmpty()) {
+                    break;
+                }
+                rows += cartStore.deleteAbandoned(userIds, cutoff);
+                carts += userIds.size();
+                userIds.forEach(summaryCache::evict);
+                afterUserId = userIds.get(userIds.size() - 1);
+                batches++;
+                failures = 0;
+                if (userIds.size() < batchSize) {
+                    break;
+                }
+                // Yield at least as long as the batch held the database, so a busy database slows the purge down
+                long batchMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - batchStarted);
+                pause = Math.min(maxBackoffMs, Math.max(pauseMs, batchMs));
+            } catch (RuntimeException e) {
+                failedBatches.incrementAndGet();
+                if (++failures >= MAX_CONSECUTIVE_FAILURES) {
+                    logger.warn("Cart expiry gave up after {} failed batches: {}", failures, e.getMessage());
+                    break;
+                }
+                pause = Math.min(maxBackoffMs, Math.max(pauseMs, 1) * (1L << failures));
+                logger.warn("Cart expiry batch failed, retrying in {} ms: {}", pause, e.getMessage());
+            }
+            if (!sleep(pause)) {
+                break;
+            }
+        }
+
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        runs.incrementAndGet();
+        rowsReclaimed.addAndGet(rows);
+        cartsReclaimed.addAndGet(carts);
+        lastRun = new RunStats(LocalDateTime.now(), rows, carts, batches, durationMs);
+        if (rows > 0) {
+            logger.info("Cart expiry reclaimed {} rows from {} carts in {} batches ({} ms)", rows, carts, batches, durationMs);
+        }
+    }
+
+    /**
+     * Get purge statistics
+     * @return totals over all runs and the figures of the last run
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("runs", runs.get());
+        stats.put("rowsReclaimed", rowsReclaimed.get());
+        stats.put("cartsReclaimed", cartsReclaimed.get());
+        stats.put("failedBatches", failedBatches.get());
+        RunStats last = lastRun;
+        if (last != null) {
+            stats.put("lastRunFinishedAt", last.finishedAt());
+            stats.put("lastRunRowsReclaimed", last.rows());
+            stats.put("lastRunCartsReclaimed", last.carts());
+            stats.put("lastRunBatches", last.batches());
+            stats.put("lastRunDurationMs", last.durationMs());
+        }
+        return stats;
+    }
+
+    private void registerMeters(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("grocerystore.cart.expiry.runs", runs, AtomicLong::get)
+                .description("Completed abandoned cart purge runs")
+                .register(meterRegistry);
+        FunctionCounter.builder("grocerystore.cart.expiry.reclaimed.rows", rowsReclaimed, AtomicLong::get)
+                .description("Cart lines deleted by the abandoned cart purge")
+                .register(meterRegistry);
+        FunctionCounter.builder("grocerystore.cart.expiry.reclaimed.carts", cartsReclaimed, AtomicLong::get)
+                .description("Abandoned carts selected for deletion by the purge")
+                .register(meterRegistry);
+        FunctionCounter.builder("grocerystore.cart.expiry.failed.batches", failedBatches, AtomicLong::get)
+                .description("Abandoned cart purge batches that failed")
+                .register(meterRegistry);
+        Gauge.builder("grocerystore.cart.expiry.last.run.rows", this, job -> lastRunValue(job, RunStats::rows))
+                .description("Cart lines deleted by the last purge run")
+                .register(meterRegistry);
+        Gauge.builder("grocerystore.cart.expiry.last.run.carts", this, job -> lastRunValue(job, RunStats::carts))
+                .description("Carts selected by the last purge run")
+                .register(meterRegistry);
+        Gauge.builder("grocerystore.cart.expiry.last.run.duration", this,
+                        job -> lastRunValue(job, RunStats::durationMs) / 1000.0)
+                .description("Duration of the last purge run")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    // 0 until the first run has finished
+    private static double lastRunValue(CartExpiryJob job, ToLongFunction<RunStats> value) {
+        RunStats last = job.lastRun;
+        return last == null ? 0 : value.applyAsLong(last);
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private record RunStats(LocalDateTime finishedAt, long rows, long carts, int batches, long durationMs) {}
+}
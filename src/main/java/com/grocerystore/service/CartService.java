@@ -1,31 +1,38 @@
 package com.grocerystore.service;
 
 import com.grocerystore.dto.AddToCartRequest;
+import com.grocerystore.dto.BatchCartRequest;
 import com.grocerystore.dto.CartResponse;
 import com.grocerystore.entity.CartItem;
 import com.grocerystore.entity.Product;
-import com.grocerystore.repository.CartRepository;
-import com.grocerystore.repository.ProductRepository;
+import com.grocerystore.util.Money;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Service
+@Timed("grocerystore.service")
 @Transactional
 public class CartService {
 
-    private final CartRepository cartRepository;
-    private final ProductRepository productRepository;
+    private final CartStore cartStore;
+    private final ProductService productService;
+    private final CartSummaryCache summaryCache;
 
     @Autowired
-    public CartService(CartRepository cartRepository, ProductRepository productRepository) {
-        this.cartRepository = cartRepository;
-        this.productRepository = productRepository;
+    public CartService(CartStore cartStore, ProductService productService, CartSummaryCache summaryCache) {
+        this.cartStore = cartStore;
+        this.productService = productService;
+        this.summaryCache = summaryCache;
     }
 
     /**
@@ -33,23 +40,34 @@ public class CartService {
      * @param userId the user ID
      * @return cart response with items and totals
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public CartResponse getCart(String userId) {
-        List<CartItem> cartItems = cartRepository.findByUserIdWithProducts(userId);
-        
-        List<CartResponse.CartItemResponse> itemResponses = cartItems.stream()
-                .map(CartResponse.CartItemResponse::new)
-                .collect(Collectors.toList());
+        long token = summaryCache.readToken(userId);
+        List<CartResponse.CartItemResponse> itemResponses = cartStore.findItemResponsesByUserId(userId);
 
-        Integer totalItems = cartItems.stream()
-                .mapToInt(CartItem::getQuantity)
-                .sum();
+        // The totals were computed anyway, so keep them for count and summary reads
+        CartSummary summary = summaryCache.offer(userId, token, summarize(itemResponses));
 
-        BigDecimal totalAmount = cartItems.stream()
-                .filter(item -> item.getProduct() != null)
-                .map(item -> item.getProduct().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return new CartResponse(userId, itemResponses, summary.getItemCount(), summary.getSubtotal());
+    }
 
-        return new CartResponse(userId, itemResponses, totalItems, totalAmount);
+    /**
+     * Get the totals of a user's cart, maintained incrementally as the cart changes
+     * @param userId the user ID
+     * @return item count, subtotal and version of the cart
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public CartSummary getCartSummary(String userId) {
+        return summaryCache.get(userId, () -> summarize(cartStore.findItemResponsesByUserId(userId)));
+    }
+
+    /**
+     * Get user's cart items with their products loaded in the same query
+     * @param userId the user ID
+     * @return cart items with product information
+     */
+    public List<CartItem> getCartItemsWithProducts(String userId) {
+        return cartStore.findByUserIdWithProducts(userId);
     }
 
     /**
@@ -59,27 +77,109 @@ public class CartService {
      * @throws IllegalArgumentException if product doesn't exist
      */
     public CartItem addToCart(AddToCartRequest request) {
-        // Validate that product exists
-        Product product = productRepository.findById(request.getProductId())
+        // Validate that product exists (served from the catalog cache)
+        Product product = productService.getProductById(request.getProductId())
                 .orElseThrow(() -> new IllegalArgumentException("Product not found with ID: " + request.getProductId()));
 
-        // Check if item already exists in cart
-        Optional<CartItem> existingItem = cartRepository.findByUserIdAndProductId(
-                request.getUserId(), request.getProductId());
-
-        if (existingItem.isPresent()) {
-            // Update quantity if item already exists
-            CartItem cartItem = existingItem.get();
-            cartItem.setQuantity(cartItem.getQuantity() + request.getQuantity());
-            return cartRepository.save(cartItem);
-        } else {
-            // Create new cart item
-            CartItem newCartItem = new CartItem(
-                    request.getProductId(),
-                    request.getUserId(),
-                    request.getQuantity()
-            );
-            return cartRepository.save(newCartItem);
+        // Single atomic upsert: adds to the existing line or creates a new one
+        CartItem cartItem = cartStore.addQuantity(request.getUserId(), request.getProductId(), request.getQuantity());
+
+        // Adds commute, so the delta is right whatever other writes to the cart commit around this one
+        long unitPrice = product.priceMinorUnits();
+        summaryCache.update(request.getUserId(), (summary, version) ->
+                summary.withChange(product.getId(), request.getQuantity(), unitPrice, version));
+        // Return the loaded product rather than an uninitialized lazy reference
+        cartItem.setProduct(product);
+        return cartItem;
+    }
+
+    /**
+     * Apply a list of add/update/remove operations to a user's cart in one transaction.
+     * All operations are validated before any is applied: products are checked with a single batched lookup
+     * and item operations must target lines of the user's cart that an earlier operation has not removed.
+     * @param request the batch request
+     * @return the resulting cart
+     * @throws IllegalArgumentException if an operation is incomplete or refers to an unknown product or item
+     */
+    public CartResponse applyBatch(BatchCartRequest request) {
+        String userId = request.getUserId();
+        List<BatchCartRequest.Operation> operations = request.getOperations();
+
+        Map<Long, CartItem> liveItems = new HashMap<>();
+        for (CartItem item : cartStore.findByUserIdWithProducts(userId)) {
+            liveItems.put(item.getId(), item);
+        }
+        // Products of the added lines and of the lines changed, for the summary deltas, in one lookup
+        Set<Long> productIds = new HashSet<>();
+        for (BatchCartRequest.Operation operation : operations) {
+            if (operation.getType() == BatchCartRequest.OperationType.ADD && operation.getProductId() != null) {
+                productIds.add(operation.getProductId());
+            } else if (operation.getItemId() != null && liveItems.containsKey(operation.getItemId())) {
+                productIds.add(liveItems.get(operation.getItemId()).getProductId());
+            }
+        }
+        Map<Long, Product> products = productIds.isEmpty()
+                ? new HashMap<>() : new HashMap<>(productService.getProductsByIds(productIds));
+
+        // Validate every operation before applying any
+        Map<Long, CartItem> remainingItems = new HashMap<>(liveItems);
+        for (BatchCartRequest.Operation operation : operations) {
+            validate(operation, products, remainingItems);
+            if (operation.getType() == BatchCartRequest.OperationType.REMOVE) {
+                remainingItems.remove(operation.getItemId());
+            }
+        }
+
+        // Each operation's delta is the quantity it added or replaced, as reported by the store
+        Map<Long, Integer> deltas = new HashMap<>();
+        for (BatchCartRequest.Operation operation : operations) {
+            switch (operation.getType()) {
+                case ADD -> {
+                    cartStore.addQuantity(userId, operation.getProductId(), operation.getQuantity());
+                    deltas.merge(operation.getProductId(), operation.getQuantity(), Integer::sum);
+                }
+                case UPDATE -> {
+                    CartStore.QuantityChange change = cartStore.updateQuantity(operation.getItemId(), operation.getQuantity())
+                            .orElseThrow(() -> new IllegalArgumentException("Cart item not found with ID: " + operation.getItemId()));
+                    deltas.merge(change.item().getProductId(), operation.getQuantity() - change.previousQuantity(), Integer::sum);
+                }
+                case REMOVE -> {
+                    int previous = cartStore.deleteById(operation.getItemId())
+                            .orElseThrow(() -> new IllegalArgumentException("Cart item not found with ID: " + operation.getItemId()));
+                    deltas.merge(liveItems.get(operation.getItemId()).getProductId(), -previous, Integer::sum);
+                }
+            }
+        }
+        applyDeltas(userId, deltas, products);
+        return getCart(userId);
+    }
+
+    private void validate(BatchCartRequest.Operation operation, Map<Long, Product> products, Map<Long, CartItem> liveItems) {
+        switch (operation.getType()) {
+            case ADD -> {
+                if (operation.getProductId() == null || operation.getQuantity() == null) {
+                    throw new IllegalArgumentException("ADD requires productId and quantity");
+                }
+                if (!products.containsKey(operation.getProductId())) {
+                    throw new IllegalArgumentException("Product not found with ID: " + operation.getProductId());
+                }
+            }
+            case UPDATE -> {
+                if (operation.getItemId() == null || operation.getQuantity() == null) {
+                    throw new IllegalArgumentException("UPDATE requires itemId and quantity");
+                }
+                if (!liveItems.containsKey(operation.getItemId())) {
+                    throw new IllegalArgumentException("Cart item not found with ID: " + operation.getItemId());
+                }
+            }
+            case REMOVE -> {
+                if (operation.getItemId() == null) {
+                    throw new IllegalArgumentException("REMOVE requires itemId");
+                }
+                if (!liveItems.containsKey(operation.getItemId())) {
+                    throw new IllegalArgumentException("Cart item not found with ID: " + operation.getItemId());
+                }
+            }
         }
     }
 
@@ -91,11 +191,11 @@ public class CartService {
      * @throws IllegalArgumentException if cart item not found
      */
     public CartItem updateCartItemQuantity(Long itemId, Integer quantity) {
-        CartItem cartItem = cartRepository.findById(itemId)
+        CartStore.QuantityChange change = cartStore.updateQuantity(itemId, quantity)
                 .orElseThrow(() -> new IllegalArgumentException("Cart item not found with ID: " + itemId));
-
-        cartItem.setQuantity(quantity);
-        return cartRepository.save(cartItem);
+        CartItem cartItem = change.item();
+        applyDeltas(cartItem.getUserId(), Map.of(cartItem.getProductId(), quantity - change.previousQuantity()));
+        return cartItem;
     }
 
     /**
@@ -105,11 +205,10 @@ public class CartService {
      * @return true if removed, false if not found or not owned by user
      */
     public boolean removeFromCart(Long itemId, String userId) {
-        Optional<CartItem> cartItem = cartRepository.findById(itemId);
+        Optional<CartItem> cartItem = cartStore.findById(itemId);
         
         if (cartItem.isPresent() && cartItem.get().getUserId().equals(userId)) {
-            cartRepository.deleteById(itemId);
-            return true;
+            return removeLine(cartItem.get());
         }
         return false;
     }
@@ -120,11 +219,9 @@ public class CartService {
      * @return true if removed, false if not found
      */
     public boolean removeFromCart(Long itemId) {
-        if (cartRepository.existsById(itemId)) {
-            cartRepository.deleteById(itemId);
-            return true;
-        }
-        return false;
+        Optional<CartItem> cartItem = cartStore.findById(itemId);
+
+        return cartItem.isPresent() && removeLine(cartItem.get());
     }
 
     /**
@@ -132,7 +229,25 @@ public class CartService {
      * @param userId the user ID
      */
     public void clearCart(String userId) {
-        cartRepository.deleteByUserId(userId);
+        // The store reports exactly the lines it deleted, so adds that commit around the clear keep their own deltas
+        Map<Long, Integer> deleted = cartStore.deleteByUserId(userId);
+        Map<Long, Integer> deltas = new HashMap<>();
+        deleted.forEach((productId, quantity) -> deltas.put(productId, -quantity));
+        applyDeltas(userId, deltas);
+    }
+
+    /**
+     * Put lines back into a user's cart, adding to any lines it has now; products no longer in the catalog are skipped
+     * @param userId the user ID
+     * @param quantities quantities by product ID
+     */
+    public void restoreCart(String userId, Map<Long, Integer> quantities) {
+        Map<Long, Product> products = productService.getProductsByIds(quantities.keySet());
+        quantities.forEach((productId, quantity) -> {
+            if (products.containsKey(productId)) {
+                addToCart(new AddToCartRequest(productId, userId, quantity));
+            }
+        });
     }
 
     /**
@@ -140,8 +255,9 @@ public class CartService {
      * @param userId the user ID
      * @return total number of items in cart
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Integer getCartItemCount(String userId) {
-        return cartRepository.countItemsByUserId(userId);
+        return getCartSummary(userId).getItemCount();
     }
 
     /**
@@ -150,8 +266,9 @@ public class CartService {
      * @param productId the product ID
      * @return true if product is in cart
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public boolean isProductInCart(String userId, Long productId) {
-        return cartRepository.findByUserIdAndProductId(userId, productId).isPresent();
+        return cartStore.findByUserIdAndProductId(userId, productId).isPresent();
     }
 
     /**
@@ -161,7 +278,62 @@ public class CartService {
      * @return optional cart item if found and owned by user
      */
     public Optional<CartItem> getCartItem(Long itemId, String userId) {
-        return cartRepository.findById(itemId)
+        return cartStore.findById(itemId)
                 .filter(item -> item.getUserId().equals(userId));
     }
+
+    private boolean removeLine(CartItem cartItem) {
+        Optional<Integer> previous = cartStore.deleteById(cartItem.getId());
+        if (previous.isEmpty()) {
+            return false;
+        }
+        applyDeltas(cartItem.getUserId(), Map.of(cartItem.getProductId(), -previous.get()));
+        return true;
+    }
+
+    private void applyDeltas(String userId, Map<Long, Integer> deltas) {
+        if (!deltas.isEmpty()) {
+            applyDeltas(userId, deltas, productService.getProductsByIds(deltas.keySet()));
+        }
+    }
+
+    /**
+     * Record quantity changes to a user's cart with the summary cache, priced at the products' current prices
+     * @param userId the user ID
+     * @param deltas quantity changes by product ID
+     * @param products the changed products, by ID; a change to a product not among them drops the summary instead
+     */
+    private void applyDeltas(String userId, Map<Long, Integer> deltas, Map<Long, Product> products) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> unitPrices = new HashMap<>();
+        for (Long productId : deltas.keySet()) {
+            Product product = products.get(productId);
+            if (product == null) {
+                // Not in the catalog any more, so the derived summary leaves the line out
+                summaryCache.invalidateOnCompletion(userId);
+                return;
+            }
+            unitPrices.put(productId, product.priceMinorUnits());
+        }
+        summaryCache.update(userId, (summary, version) -> {
+            for (Map.Entry<Long, Integer> delta : deltas.entrySet()) {
+                summary = summary.withChange(delta.getKey(), delta.getValue(), unitPrices.get(delta.getKey()), version);
+            }
+            return summary;
+        });
+    }
+
+    private CartSummary summarize(List<CartResponse.CartItemResponse> itemResponses) {
+        int itemCount = 0;
+        long subtotal = 0;
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (CartResponse.CartItemResponse item : itemResponses) {
+            itemCount += item.getQuantity();
+            subtotal += Money.toMinorUnits(item.getSubtotal());
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        return new CartSummary(itemCount, subtotal, 0, quantities);
+    }
 } 
\ No newline at end of file
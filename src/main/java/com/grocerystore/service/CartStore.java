@@ -0,0 +1,94 @@
+package com.grocerystore.service;
+
+import com.grocerystore.dto.CartResponse;
+import com.grocerystore.entity.CartItem;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Storage for live carts used by CartService.
+ * Selected with grocerystore.cart.store: "jpa" (default) reads and writes cart_items directly,
+ * "write-behind" keeps carts in memory and flushes changes to the database asynchronously.
+ */
+public interface CartStore {
+
+    /**
+     * Find all cart items for a user with their products attached, ordered by item ID
+     * @param userId the user ID
+     * @return cart items with product information
+     */
+    List<CartItem> findByUserIdWithProducts(String userId);
+
+    /**
+     * Read a user's cart lines for display, ordered by item ID, without managed entities
+     * @param userId the user ID
+     * @return cart line responses
+     */
+    List<CartResponse.CartItemResponse> findItemResponsesByUserId(String userId);
+
+    /**
+     * Find a cart item by ID
+     * @param itemId the cart item ID
+     * @return optional cart item if exists
+     */
+    Optional<CartItem> findById(Long itemId);
+
+    /**
+     * Find a specific cart item by user and product
+     * @param userId the user ID
+     * @param productId the product ID
+     * @return optional cart item if exists
+     */
+    Optional<CartItem> findByUserIdAndProductId(String userId, Long productId);
+
+    /**
+     * Add quantity to the user's line for a product, creating the line if needed
+     * @param userId the user ID
+     * @param productId the product ID (must exist)
+     * @param quantity the quantity to add
+     * @return the resulting cart item
+     */
+    CartItem addQuantity(String userId, Long productId, Integer quantity);
+
+    /**
+     * Set the quantity of an existing cart item
+     * @param itemId the cart item ID
+     * @param quantity the new quantity
+     * @return the updated cart item with the quantity it replaced, empty if not found
+     */
+    Optional<QuantityChange> updateQuantity(Long itemId, Integer quantity);
+
+    /**
+     * Delete a cart item
+     * @param itemId the cart item ID
+     * @return the quantity the item had when it was deleted, empty if it did not exist
+     */
+    Optional<Integer> deleteById(Long itemId);
+
+    /**
+     * Delete all cart items for a user
+     * @param userId the user ID
+     * @return the quantities deleted, by product ID
+     */
+    Map<Long, Integer> deleteByUserId(String userId);
+
+    /**
+     * Delete the carts of the given users that have not been modified since a cutoff.
+     * Carts modified in the meantime, or otherwise known to be in use, are kept.
+     * @param userIds the candidate user IDs
+     * @param cutoff carts with no line modified at or after this time are abandoned
+     * @return number of cart lines deleted
+     */
+    int deleteAbandoned(Collection<String> userIds, LocalDateTime cutoff);
+
+    /**
+     * A cart item after its quantity was set, with the quantity it had just before
+     * @param item the updated cart item
+     * @param previousQuantity the quantity the update replaced
+     */
+    record QuantityChange(CartItem item, int previousQuantity) {}
+}
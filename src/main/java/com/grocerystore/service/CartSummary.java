@@ -0,0 +1,89 @@
+package com.grocerystore.service;
+
+import com.grocerystore.util.Money;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Immutable totals of one user's cart: item count, subtotal in minor currency units (cents) and a version.
+ * The version increases with every change, so clients can tell whether a cached summary is still current.
+ */
+public final class CartSummary {
+
+    private final int itemCount;
+    private final long subtotalMinor;
+    private final long version;
+    // Quantity per product, so repricing a product can find the summaries it affects; shared with the
+    // summaries derived from this one
+    private final ProductQuantities quantities;
+
+    CartSummary(int itemCount, long subtotalMinor, long version, Map<Long, Integer> quantities) {
+        this(itemCount, subtotalMinor, version, ProductQuantities.of(quantities));
+    }
+
+    private CartSummary(int itemCount, long subtotalMinor, long version, ProductQuantities quantities) {
+        this.itemCount = itemCount;
+        this.subtotalMinor = subtotalMinor;
+        this.version = version;
+        this.quantities = quantities;
+    }
+
+    /**
+     * Derive a summary with a quantity of a product added or removed
+     * @param productId the product ID
+     * @param quantityDelta the change in quantity (negative to remove)
+     * @param unitPriceMinor the product's unit price in minor units
+     * @param version the new version
+     * @return the updated summary
+     * @throws ArithmeticException if the item count or subtotal overflows
+     */
+    CartSummary withChange(Long productId, int quantityDelta, long unitPriceMinor, long version) {
+        int quantity = Math.addExact(quantities.get(productId), quantityDelta);
+        return new CartSummary(Math.addExact(itemCount, quantityDelta),
+                Math.addExact(subtotalMinor, Math.multiplyExact(quantityDelta, unitPriceMinor)),
+                version, quantities.with(productId, quantity));
+    }
+
+    CartSummary withVersion(long version) {
+        return new CartSummary(itemCount, subtotalMinor, version, quantities);
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public long getSubtotalMinor() {
+        return subtotalMinor;
+    }
+
+    public BigDecimal getSubtotal() {
+        return Money.toBigDecimal(subtotalMinor);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    boolean containsProduct(Long productId) {
+        return quantities.contains(productId);
+    }
+
+    boolean anyProduct(Predicate<Long> predicate) {
+        return quantities.anyProductId(predicate);
+    }
+
+    /**
+     * Report the products in only one of two summaries; a change to one product costs O(log n) to compare
+     * @param from the earlier summary, or null for none
+     * @param to the later summary, or null for none
+     * @param removed called with each product ID only in from
+     * @param added called with each product ID only in to
+     */
+    static void diffProducts(CartSummary from, CartSummary to, Consumer<Long> removed, Consumer<Long> added) {
+        ProductQuantities.diff(from != null ? from.quantities : ProductQuantities.EMPTY,
+                to != null ? to.quantities : ProductQuantities.EMPTY, removed, added);
+    }
+}
@@ -0,0 +1,325 @@
+package com.grocerystore.service;
+
+import com.grocerystore.event.ProductChangeEvent;
+import com.grocerystore.event.ProductChangeListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Per-user CartSummary kept up to date incrementally as carts change.
+ * Cart writes apply their delta once their transaction commits and evict the summary if it rolls back. Stores report
+ * the quantity a write replaced, so setting a quantity, removing a line and clearing a cart apply deltas as adds do.
+ * A summary is only derived from the cart lines on a miss or after a product price change, and a derived
+ * summary is discarded if a cart write for the same user was in flight or completed while it was being read.
+ * Users are indexed by the products in their summaries, so a price change only visits the carts that contain it.
+ * An entry is removed as soon as it holds neither a summary nor pending writes, and otherwise after it has been
+ * idle for the idle eviction time.
+ */
+@Component
+@Order(ProductChangeListener.DERIVED_ORDER)
+public class CartSummaryCache implements ProductChangeListener {
+
+    // Global so versions keep increasing across evictions
+    private final AtomicLong versions = new AtomicLong();
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Users whose summary includes a product, by product ID; only changed inside compute calls
+    private final Map<Long, Set<String>> usersByProduct = new ConcurrentHashMap<>();
+    // Version at which each product last changed; summaries derived from reads before it are not stored
+    private final Map<Long, Long> productVersions = new ConcurrentHashMap<>();
+    // Version of the last catalog reload
+    private volatile long reloadVersion;
+    private final long idleEvictionNanos;
+
+    @Autowired
+    public CartSummaryCache(@Value("${grocerystore.cart.summary.idle-eviction-ms:1800000}") long idleEvictionMs) {
+        this.idleEvictionNanos = TimeUnit.MILLISECONDS.toNanos(idleEvictionMs);
+    }
+
+    /**
+     * Get a user's summary, deriving it on a miss
+     * @param userId the user ID
+     * @param deriver computes the summary from the cart lines; its version is replaced
+     * @return the current summary
+     */
+    public CartSummary get(String userId, Supplier<CartSummary> deriver) {
+        Entry entry = entries.get(userId);
+        CartSummary summary = entry != null ? entry.summary : null;
+        if (summary != null) {
+            entry.lastAccess = System.nanoTime();
+            return summary;
+        }
+        long token = readToken(userId);
+        return offer(userId, token, deriver.get());
+    }
+
+    /**
+     * Remember the state of a user's cart before reading it for offer
+     * @param userId the user ID
+     * @return a token to pass to offer
+     */
+    public long readToken(String userId) {
+        return withEntry(userId, entry -> entry.pending > 0 ? -1 : entry.generation);
+    }
+
+    /**
+     * Store a summary derived from the cart lines, unless the cart or a product in it changed since readToken
+     * @param userId the user ID
+     * @param token the token from readToken, taken before reading the cart
+     * @param derived the derived summary
+     * @return the cached summary if it is still current, otherwise the derived summary with a new version
+     */
+    public CartSummary offer(String userId, long token, CartSummary derived) {
+        CartSummary summary = derived.withVersion(versions.incrementAndGet());
+        if (token < 0) {
+            return summary;
+        }
+        return withEntry(userId, entry -> {
+            if (entry.pending > 0 || entry.generation > token) {
+                return summary;
+            }
+            // Nothing changed since the read: keep a summary that is already cached so its version stays put
+            if (entry.summary == null) {
+                // Indexed before checking for product changes, so a concurrent change either sees the index or is seen here
+                setSummary(entry, summary);
+                entry.generation = summary.getVersion();
+                if (changedSince(summary, token)) {
+                    drop(entry);
+                    return summary;
+                }
+            }
+            return entry.summary;
+        });
+    }
+
+    /**
+     * Record a cart write; the change is applied to the summary when the current transaction commits
+     * @param userId the user ID
+     * @param change derives the new summary from the current one, given the new version
+     */
+    public void update(String userId, Change change) {
+        // An entry with pending writes is never removed, so the one seen here is still current on completion
+        Entry entry = withEntry(userId, current -> {
+            current.pending++;
+            current.generation = versions.incrementAndGet();
+            return current;
+        });
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    complete(entry, change, status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            complete(entry, change, true);
+        }
+    }
+
+    /**
+     * Record a cart write whose effect on the totals is not known, such as one for a product no longer in the catalog;
+     * the summary is dropped when the current transaction completes and derived again on the next read
+     * @param userId the user ID
+     */
+    public void invalidateOnCompletion(String userId) {
+        update(userId, (summary, version) -> null);
+    }
+
+    /**
+     * Drop every summary that includes a product, e.g. after its price changed.
+     * Summaries being derived concurrently may have read the old price, so they are not stored either.
+     * @param productId the product ID
+     */
+    public void productChanged(Long productId) {
+        productVersions.put(productId, versions.incrementAndGet());
+        Set<String> userIds = usersByProduct.remove(productId);
+        if (userIds == null) {
+            return;
+        }
+        for (String userId : userIds) {
+            Entry entry = entries.get(userId);
+            if (entry == null) {
+                continue;
+            }
+            synchronized (entry) {
+                if (!entry.removed && entry.summary != null && entry.summary.containsProduct(productId)) {
+                    drop(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop a user's summary after their cart was changed outside CartService, e.g. purged
+     * @param userId the user ID
+     */
+    public void evict(String userId) {
+        Entry entry = entries.get(userId);
+        if (entry != null) {
+            synchronized (entry) {
+                if (!entry.removed) {
+                    drop(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop all summaries
+     */
+    public void invalidate() {
+        reloadVersion = versions.incrementAndGet();
+        for (Entry entry : entries.values()) {
+            synchronized (entry) {
+                if (!entry.removed) {
+                    drop(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove entries that have not been read or written for the idle eviction time
+     */
+    @Scheduled(fixedDelayString = "${grocerystore.cart.summary.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        for (Entry entry : entries.values()) {
+            if (now - entry.lastAccess < idleEvictionNanos) {
+                continue;
+            }
+            synchronized (entry) {
+                if (!entry.removed && entry.pending == 0 && now - entry.lastAccess >= idleEvictionNanos) {
+                    remove(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of users with a cached summary or pending cart writes
+     */
+    int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void onProductChange(ProductChangeEvent event) {
+        switch (event.getType()) {
+            // Creating a product or changing anything but its price leaves cart totals as they are
+            case SAVED -> {
+                if (event.isPriceChanged()) {
+                    productChanged(event.getProductId());
+                }
+            }
+            case DELETED -> productChanged(event.getProductId());
+            case CATALOG_RELOADED -> invalidate();
+        }
+    }
+
+    private void complete(Entry entry, Change change, boolean committed) {
+        synchronized (entry) {
+            entry.pending--;
+            long version = versions.incrementAndGet();
+            entry.generation = version;
+            if (entry.summary != null) {
+                setSummary(entry, committed ? change.apply(entry.summary, version) : null);
+            }
+            if (entry.summary == null && entry.pending == 0) {
+                remove(entry);
+            }
+        }
+    }
+
+    /** Runs an action with the user's entry locked, creating the entry if there is none */
+    private <T> T withEntry(String userId, Function<Entry, T> action) {
+        while (true) {
+            Entry entry = entries.computeIfAbsent(userId, key -> new Entry(key, versions.get()));
+            synchronized (entry) {
+                // Removed after it was looked up: a fresh entry replaces it
+                if (!entry.removed) {
+                    entry.lastAccess = System.nanoTime();
+                    return action.apply(entry);
+                }
+            }
+        }
+    }
+
+    private boolean changedSince(CartSummary summary, long token) {
+        if (reloadVersion > token) {
+            return true;
+        }
+        return summary.anyProduct(productId -> productVersions.getOrDefault(productId, 0L) > token);
+    }
+
+    /** Must be called with the entry locked */
+    private void drop(Entry entry) {
+        setSummary(entry, null);
+        entry.generation = versions.incrementAndGet();
+        if (entry.pending == 0) {
+            remove(entry);
+        }
+    }
+
+    /** Must be called with the entry locked */
+    private void remove(Entry entry) {
+        setSummary(entry, null);
+        entry.removed = true;
+        entries.remove(entry.userId, entry);
+    }
+
+    /** Must be called with the entry locked; keeps the product index in step with the summary */
+    private void setSummary(Entry entry, CartSummary summary) {
+        // Only the products that entered or left the cart, so applying a change does not visit every line
+        CartSummary.diffProducts(entry.summary, summary,
+                productId -> usersByProduct.computeIfPresent(productId, (key, userIds) -> {
+                    userIds.remove(entry.userId);
+                    return userIds.isEmpty() ? null : userIds;
+                }),
+                productId -> usersByProduct.compute(productId, (key, userIds) -> {
+                    Set<String> indexed = userIds != null ? userIds : new HashSet<>();
+                    indexed.add(entry.userId);
+                    return indexed;
+                }));
+        entry.summary = summary;
+    }
+
+    /**
+     * Change to apply to a summary for a cart write
+     */
+    @FunctionalInterface
+    public interface Change {
+        CartSummary apply(CartSummary summary, long version);
+    }
+
+    private static final class Entry {
+        private final String userId;
+        // Read without the lock by get
+        private volatile CartSummary summary;
+        // Version of the last change; derived summaries read before it are stale
+        private long generation;
+        // Cart writes whose transaction has not completed yet
+        private int pending;
+        // Set once the entry has left the map
+        private boolean removed;
+        private volatile long lastAccess = System.nanoTime();
+
+        Entry(String userId, long generation) {
+            this.userId = userId;
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.grocerystore.service;
+
+import com.grocerystore.entity.Category;
+import com.grocerystore.entity.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, versioned view of the whole product catalog.
+ * A new snapshot is built for every catalog write; readers never see a partially applied change.
+ * It holds read-only copies of the products, so no session manages them and no reader can change them for the others.
+ */
+public final class CatalogSnapshot {
+
+    /** Same ordering as ProductRepository.findAllByOrderByNameAsc, with the ID as tie-breaker */
+    static final Comparator<Product> NAME_ORDER = Comparator.comparing(Product::getName)
+            .thenComparing(Product::getId);
+
+    private static final Product[] NO_PRODUCTS = new Product[0];
+
+    private final long version;
+    private final Product[] productsByName;
+    private final EnumMap<Category, Product[]> productsByCategory;
+    private final Map<Long, Product> productsById;
+
+    private CatalogSnapshot(long version, Map<Long, Product> productsById) {
+        this.version = version;
+        this.productsById = Collections.unmodifiableMap(productsById);
+
+        Product[] sorted = productsById.values().toArray(NO_PRODUCTS);
+        Arrays.sort(sorted, NAME_ORDER);
+        this.productsByName = sorted;
+
+        Map<Category, List<Product>> grouped = new EnumMap<>(Category.class);
+        for (Product product : sorted) {
+            grouped.computeIfAbsent(product.getCategory(), category -> new ArrayList<>()).add(product);
+        }
+        this.productsByCategory = new EnumMap<>(Category.class);
+        for (Category category : Category.values()) {
+            List<Product> products = grouped.get(category);
+            productsByCategory.put(category, products != null ? products.toArray(NO_PRODUCTS) : NO_PRODUCTS);
+        }
+    }
+
+    /**
+     * Build the initial snapshot from a full catalog load
+     * @param products all products
+     * @return snapshot with version 1
+     */
+    static CatalogSnapshot of(Collection<Product> products) {
+        Map<Long, Product> byId = new HashMap<>(Math.max(16, products.size() * 2));
+        for (Product product : products) {
+            byId.put(product.getId(), product.readOnlyCopy());
+        }
+        return new CatalogSnapshot(1, byId);
+    }
+
+    /**
+     * Derive a new snapshot with a product added or replaced
+     * @param product the saved product
+     * @return the next snapshot version
+     */
+    CatalogSnapshot withProduct(Product product) {
+        Map<Long, Product> byId = new HashMap<>(productsById);
+        byId.put(product.getId(), product.readOnlyCopy());
+        return new CatalogSnapshot(version + 1, byId);
+    }
+
+    /**
+     * Derive a new snapshot without the given product
+     * @param id the removed product ID
+     * @return the next snapshot version
+     */
+    CatalogSnapshot withoutProduct(Long id) {
+        Map<Long, Product> byId = new HashMap<>(productsById);
+        byId.remove(id);
+        return new CatalogSnapshot(version + 1, byId);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return productsByName.length;
+    }
+
+    public List<Product> getProductsByName() {
+        return Collections.unmodifiableList(Arrays.asList(productsByName));
+    }
+
+    public List<Product> getProductsByCategory(Category category) {
+        return Collections.unmodifiableList(Arrays.asList(productsByCategory.get(category)));
+    }
+
+    public Product getProduct(Long id) {
+        return productsById.get(id);
+    }
+
+    /**
+     * Get the page of products that follows a (name, id) keyset position
+     * @param category the category to page through, or null for the whole catalog
+     * @param afterName name of the last product on the previous page, or null for the first page
+     * @param afterId ID of the last product on the previous page, or null for the first page
+     * @param limit maximum number of products on the page
+     * @return products ordered by name, then ID
+     */
+    public List<Product> getPage(Category category, String afterName, Long afterId, int limit) {
+        Product[] products = category != null ? productsByCategory.get(category) : productsByName;
+        int from = 0;
+        if (afterName != null && afterId != null) {
+            Product position = new Product();
+            position.setName(afterName);
+            position.setId(afterId);
+            int index = Arrays.binarySearch(products, position, NAME_ORDER);
+            from = index >= 0 ? index + 1 : -index - 1;
+        }
+        int to = Math.min(products.length, from + limit);
+        return from >= to ? List.of() : Collections.unmodifiableList(Arrays.asList(products).subList(from, to));
+    }
+}
@@ -0,0 +1,263 @@
+package com.grocerystore.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grocerystore.dto.CheckoutRequest;
+import com.grocerystore.dto.OrderResponse;
+import com.grocerystore.entity.IdempotencyRecord;
+import com.grocerystore.repository.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Makes checkout idempotent per user and Idempotency-Key.
+ * The first request with a key runs the checkout; its result is recorded in idempotency_keys in the same
+ * transaction as the order, so an order never exists without its key (and vice versa). Concurrent duplicates
+ * wait for that execution instead of starting their own, and later duplicates replay the recorded response:
+ * from a bounded in-memory map while it still holds the key, otherwise from the table.
+ * Failed checkouts are not recorded, so the client can retry them with the same key.
+ */
+@Component
+public class CheckoutIdempotencyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckoutIdempotencyStore.class);
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyRecordRepository repository;
+    private final ObjectMapper objectMapper;
+    private final long waitTimeoutMs;
+    private final Duration ttl;
+    private final long ttlNanos;
+
+    // Executions by user and key, least recently used first; only completed executions are evicted
+    private final Map<String, Execution> executions;
+
+    @Autowired
+    public CheckoutIdempotencyStore(IdempotencyRecordRepository repository, ObjectMapper objectMapper,
+                                    @Value("${grocerystore.idempotency.max-entries:10000}") int maxEntries,
+                                    @Value("${grocerystore.idempotency.wait-timeout-ms:30000}") long waitTimeoutMs,
+                                    @Value("${grocerystore.idempotency.ttl:24h}") Duration ttl) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Idempotency max entries must be positive");
+        }
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.waitTimeoutMs = waitTimeoutMs;
+        this.ttl = ttl;
+        this.ttlNanos = ttl.toNanos();
+        this.executions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Execution> eldest) {
+                return size() > maxEntries && eldest.getValue().result.isDone();
+            }
+        };
+    }
+
+    /**
+     * Run a checkout once per user and key
+     * @param userId the user ID
+     * @param key the client's Idempotency-Key
+     * @param request the checkout request; a key can only be reused with the same request
+     * @param checkout runs the checkout and must call Claim.record in the transaction that creates the order
+     * @return the checkout response, and whether it was replayed rather than produced by this call
+     * @throws IllegalArgumentException if the key is invalid or was used for a different request
+     * @throws IllegalStateException if a duplicate request is still in progress after the wait timeout
+     */
+    public Outcome execute(String userId, String key, CheckoutRequest request, Function<Claim, OrderResponse> checkout) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String fingerprint = fingerprint(request);
+        String executionKey = userId + '\u0000' + key;
+
+        Execution execution;
+        boolean owner = false;
+        synchronized (executions) {
+            execution = executions.get(executionKey);
+            if (execution != null && execution.isExpired(ttlNanos)) {
+                executions.remove(executionKey);
+                execution = null;
+            }
+            if (execution == null) {
+                execution = new Execution(fingerprint);
+                executions.put(executionKey, execution);
+                owner = true;
+            }
+        }
+        checkFingerprint(execution.fingerprint, fingerprint);
+        if (!owner) {
+            return new Outcome(await(execution), true);
+        }
+
+        try {
+            Outcome outcome = runOnce(new Claim(userId, key, fingerprint), checkout);
+            execution.result.complete(outcome.response());
+            return outcome;
+        } catch (RuntimeException e) {
+            synchronized (executions) {
+                executions.remove(executionKey, execution);
+            }
+            execution.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Delete records older than the TTL
+     */
+    @Scheduled(fixedDelayString = "${grocerystore.idempotency.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = repository.deleteCreatedBefore(LocalDateTime.now().minus(ttl));
+        if (deleted > 0) {
+            logger.info("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    private Outcome runOnce(Claim claim, Function<Claim, OrderResponse> checkout) {
+        // Completed before this instance last saw the key (restart, eviction or another instance)
+        Optional<OrderResponse> stored = findStored(claim);
+        if (stored.isPresent()) {
+            return new Outcome(stored.get(), true);
+        }
+        try {
+            return new Outcome(checkout.apply(claim), false);
+        } catch (DataIntegrityViolationException e) {
+            // Another instance recorded the key first and our order was rolled back with our record
+            return new Outcome(findStored(claim).orElseThrow(() -> e), true);
+        }
+    }
+
+    private Optional<OrderResponse> findStored(Claim claim) {
+        return repository.findByUserIdAndIdempotencyKey(claim.userId, claim.key)
+                .map(record -> {
+                    checkFingerprint(record.getRequestFingerprint(), claim.fingerprint);
+                    return fromJson(record.getResponseBody());
+                });
+    }
+
+    private OrderResponse await(Execution execution) {
+        try {
+            return execution.result.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("A checkout with this Idempotency-Key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a checkout with this Idempotency-Key");
+        } catch (ExecutionException e) {
+            // The original request failed; report the same failure to its duplicates
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static void checkFingerprint(String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new IllegalArgumentException("Idempotency-Key was already used for a different checkout request");
+        }
+    }
+
+    private String fingerprint(CheckoutRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Cannot fingerprint checkout request", e);
+        }
+    }
+
+    private String toJson(OrderResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot store checkout response", e);
+        }
+    }
+
+    private OrderResponse fromJson(String json) {
+        try {
+            return objectMapper.readValue(json.getBytes(StandardCharsets.UTF_8), OrderResponse.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read stored checkout response", e);
+        }
+    }
+
+    /**
+     * The right to run a checkout for a key, handed to the checkout so it can record its result
+     */
+    public final class Claim {
+        private final String userId;
+        private final String key;
+        private final String fingerprint;
+
+        private Claim(String userId, String key, String fingerprint) {
+            this.userId = userId;
+            this.key = key;
+            this.fingerprint = fingerprint;
+        }
+
+        /**
+         * Record the response; must be called in the transaction that creates the order
+         * @param response the checkout response
+         */
+        public void record(OrderResponse response) {
+            // Flushed now so a concurrent duplicate on another instance fails here, before the order commits
+            repository.saveAndFlush(new IdempotencyRecord(userId, key, fingerprint,
+                    response.getOrderId(), toJson(response)));
+        }
+
+        /**
+         * Drop the recorded response of a checkout that was undone, so a retry with the key runs it again;
+         * must be called in a transaction
+         */
+        public void forget() {
+            repository.deleteByUserIdAndIdempotencyKey(userId, key);
+        }
+    }
+
+    /**
+     * Result of execute
+     * @param response the checkout response
+     * @param replayed true if the response was recorded by an earlier request with the same key
+     */
+    public record Outcome(OrderResponse response, boolean replayed) {}
+
+    private static final class Execution {
+        private final String fingerprint;
+        private final CompletableFuture<OrderResponse> result = new CompletableFuture<>();
+        private final long createdAt = System.nanoTime();
+
+        Execution(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        boolean isExpired(long ttlNanos) {
+            return result.isDone() && System.nanoTime() - createdAt >= ttlNanos;
+        }
+    }
+}
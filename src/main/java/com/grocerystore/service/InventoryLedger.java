@@ -0,0 +1,336 @@
+package com.grocerystore.service;
+
+import com.grocerystore.event.ProductChangeEvent;
+import com.grocerystore.event.ProductChangeListener;
+import com.grocerystore.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory, lock-free stock ledger used to reserve units at checkout.
+ * Each tracked product's units on hand are spread over a fixed number of shards, each an AtomicLong that
+ * is only ever decremented by compare-and-set while it holds enough units, so buyers of a hot product
+ * contend on different shards rather than on one row lock, and stock can never go below zero.
+ * A reservation takes units from as many shards as it needs and gives them back if the product runs short.
+ * Net changes are written behind to products.stock every flush interval; a periodic reconciliation
+ * then compares each idle product's ledger with the database and corrects the ledger for stock changed
+ * elsewhere (other instances or direct SQL), and starts tracking products found untracked that now have stock.
+ */
+@Component
+@Order(ProductChangeListener.DERIVED_ORDER)
+public class InventoryLedger implements ProductChangeListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryLedger.class);
+
+    // A reservation can fall short while concurrent reservations hold units they are about to give back
+    private static final int MAX_RESERVE_ATTEMPTS = 3;
+
+    private static final SkuStock UNTRACKED = new SkuStock(0, 0);
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int shards;
+    private final long reconcileIntervalNanos;
+
+    private final Map<Long, SkuStock> ledger = new ConcurrentHashMap<>();
+    private final ReentrantLock maintenanceLock = new ReentrantLock();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong corrections = new AtomicLong();
+    private volatile long lastReconcile = System.nanoTime();
+
+    @Autowired
+    public InventoryLedger(ProductRepository productRepository, PlatformTransactionManager transactionManager,
+                           @Value("${grocerystore.inventory.shards:16}") int shards,
+                           @Value("${grocerystore.inventory.reconcile-interval-ms:10000}") long reconcileIntervalMs) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("Inventory shards must be positive");
+        }
+        this.productRepository = productRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.shards = shards;
+        this.reconcileIntervalNanos = TimeUnit.MILLISECONDS.toNanos(reconcileIntervalMs);
+    }
+
+    /**
+     * Reserve units of several products, all or nothing. Products whose stock is not tracked always succeed.
+     * @param quantities units to reserve by product ID
+     * @throws IllegalArgumentException if a product does not have enough units on hand
+     */
+    public void reserve(Map<Long, Integer> quantities) {
+        // Fixed order keeps concurrent multi-line reservations from starving each other
+        Map<Long, Integer> ordered = new TreeMap<>(quantities);
+        List<Map.Entry<Long, Integer>> reserved = new ArrayList<>(ordered.size());
+        for (Map.Entry<Long, Integer> line : ordered.entrySet()) {
+            if (!stockOf(line.getKey()).reserve(line.getValue())) {
+                reserved.forEach(done -> stockOf(done.getKey()).release(done.getValue()));
+                rejected.incrementAndGet();
+                throw new IllegalArgumentException("Insufficient stock for product ID: " + line.getKey());
+            }
+            reserved.add(line);
+        }
+    }
+
+    /**
+     * Return reserved units, e.g. after the order was cancelled or its payment failed
+     * @param quantities units to release by product ID
+     */
+    public void release(Map<Long, Integer> quantities) {
+        quantities.forEach((productId, quantity) -> stockOf(productId).release(quantity));
+    }
+
+    /**
+     * Add units to (or remove units from) a product's stock, starting to track it if it was not tracked.
+     * Removing more units than are available removes what is available.
+     * @param productId the product ID
+     * @param delta units to add, negative to remove
+     * @return the units now available
+     * @throws IllegalArgumentException if the product does not exist
+     */
+    public long adjust(Long productId, int delta) {
+        maintenanceLock.lock();
+        try {
+            SkuStock stock = stockOf(productId);
+            if (stock == UNTRACKED) {
+                int initial = Math.max(0, delta);
+                Integer rows = transactionTemplate.execute(status -> productRepository.adjustStock(productId, initial));
+                ledger.remove(productId);
+                if (rows == null || rows == 0) {
+                    throw new IllegalArgumentException("Product not found with ID: " + productId);
+                }
+                return stockOf(productId).available();
+            }
+            long applied = delta >= 0 ? stock.add(delta) : -stock.take(-delta);
+            // Applied to the ledger first so a failed write leaves it conservative; the next reconciliation repairs it
+            write(productId, (int) applied);
+            return stock.available();
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    /**
+     * Get the units of a product currently available for reservation
+     * @param productId the product ID
+     * @return the available units, or null if the product's stock is not tracked
+     */
+    public Long getAvailable(Long productId) {
+        SkuStock stock = stockOf(productId);
+        return stock == UNTRACKED ? null : stock.available();
+    }
+
+    /**
+     * Write net reservations to the database and, every reconcile interval, reconcile idle products
+     */
+    @Scheduled(fixedDelayString = "${grocerystore.inventory.flush-interval-ms:200}")
+    public void flush() {
+        maintenanceLock.lock();
+        try {
+            for (Map.Entry<Long, SkuStock> entry : ledger.entrySet()) {
+                SkuStock stock = entry.getValue();
+                if (stock == UNTRACKED) {
+                    continue;
+                }
+                long pending = stock.pending.sum();
+                if (pending == 0) {
+                    continue;
+                }
+                // Subtract rather than reset, so reservations made during the write stay pending
+                stock.pending.add(-pending);
+                try {
+                    write(entry.getKey(), (int) -pending);
+                } catch (RuntimeException e) {
+                    stock.pending.add(pending);
+                    logger.warn("Inventory flush failed for product {}, will retry: {}", entry.getKey(), e.getMessage());
+                }
+            }
+            if (System.nanoTime() - lastReconcile >= reconcileIntervalNanos) {
+                reconcile();
+                lastReconcile = System.nanoTime();
+            }
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    /**
+     * Write everything still pending before the application context closes
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Get ledger statistics
+     * @return tracked product count, rejected reservations and reconciliation corrections
+     */
+    public Map<String, Object> getStats() {
+        long tracked = ledger.values().stream().filter(stock -> stock != UNTRACKED).count();
+        return Map.of(
+                "trackedProducts", tracked,
+                "rejectedReservations", rejected.get(),
+                "reconciliationCorrections", corrections.get()
+        );
+    }
+
+    @Override
+    public void onProductChange(ProductChangeEvent event) {
+        switch (event.getType()) {
+            case DELETED -> ledger.remove(event.getProductId());
+            // Stock of existing products is only changed through the ledger; bulk writes are picked up by reconciliation
+            case SAVED, CATALOG_RELOADED -> {
+            }
+        }
+    }
+
+    /** Must be called with the maintenance lock held, after pending changes were flushed */
+    private void reconcile() {
+        for (Map.Entry<Long, SkuStock> entry : ledger.entrySet()) {
+            SkuStock stock = entry.getValue();
+            if (stock == UNTRACKED) {
+                // Stock may have been set elsewhere, or by an adjustment racing with the lookup that found none
+                productRepository.findStockById(entry.getKey()).ifPresent(units ->
+                        ledger.replace(entry.getKey(), UNTRACKED, new SkuStock(shards, units)));
+                continue;
+            }
+            // Only compare while no reservation touches the product; otherwise try again next time
+            long sequence = stock.sequence.get();
+            if (stock.pending.sum() != 0) {
+                continue;
+            }
+            Integer stored = productRepository.findStockById(entry.getKey()).orElse(null);
+            long available = stock.available();
+            if (stock.sequence.get() != sequence || stored == null) {
+                continue;
+            }
+            long drift = stored - available;
+            if (drift != 0) {
+                // Relative corrections stay right even if reservations happen from here on
+                long applied = drift > 0 ? stock.add(drift) : -stock.take(-drift);
+                corrections.incrementAndGet();
+                logger.info("Reconciled stock of product {}: ledger {} -> {} (database {})",
+                        entry.getKey(), available, available + applied, stored);
+            }
+        }
+    }
+
+    private void write(Long productId, int delta) {
+        if (delta != 0) {
+            transactionTemplate.executeWithoutResult(status -> productRepository.adjustStock(productId, delta));
+        }
+    }
+
+    private SkuStock stockOf(Long productId) {
+        SkuStock stock = ledger.get(productId);
+        if (stock != null) {
+            return stock;
+        }
+        // Loaded outside the map so the query does not block other products' lookups; the first load wins
+        SkuStock loaded = productRepository.findStockById(productId)
+                .map(units -> new SkuStock(shards, units))
+                .orElse(UNTRACKED);
+        SkuStock existing = ledger.putIfAbsent(productId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    /**
+     * Units on hand of one product, split over shards.
+     * A reservation or release adds to pending before it bumps the sequence, and bumps the sequence before it
+     * touches the shards, so reconciliation can tell whether any was in flight while it read the shards.
+     */
+    private static final class SkuStock {
+        private final AtomicLong[] shards;
+        // Net units reserved (positive) or released (negative) and not yet written to the database
+        private final LongAdder pending = new LongAdder();
+        private final AtomicLong sequence = new AtomicLong();
+
+        SkuStock(int shardCount, long units) {
+            shards = new AtomicLong[shardCount];
+            for (int i = 0; i < shardCount; i++) {
+                shards[i] = new AtomicLong(units / shardCount + (i < units % shardCount ? 1 : 0));
+            }
+        }
+
+        boolean reserve(int quantity) {
+            if (this == UNTRACKED) {
+                return true;
+            }
+            pending.add(quantity);
+            sequence.incrementAndGet();
+            for (int attempt = 0; attempt < MAX_RESERVE_ATTEMPTS; attempt++) {
+                long taken = take(quantity);
+                if (taken == quantity) {
+                    return true;
+                }
+                add(taken);
+                if (available() < quantity) {
+                    break;
+                }
+            }
+            pending.add(-quantity);
+            return false;
+        }
+
+        void release(int quantity) {
+            if (this == UNTRACKED) {
+                return;
+            }
+            pending.add(-quantity);
+            sequence.incrementAndGet();
+            add(quantity);
+        }
+
+        /** Take up to quantity units, starting at a random shard; returns the units taken */
+        long take(long quantity) {
+            int start = ThreadLocalRandom.current().nextInt(shards.length);
+            long taken = 0;
+            for (int i = 0; i < shards.length && taken < quantity; i++) {
+                AtomicLong shard = shards[(start + i) % shards.length];
+                long units = shard.get();
+                while (units > 0) {
+                    long take = Math.min(units, quantity - taken);
+                    if (shard.compareAndSet(units, units - take)) {
+                        taken += take;
+                        break;
+                    }
+                    units = shard.get();
+                }
+            }
+            return taken;
+        }
+
+        long add(long quantity) {
+            shards[ThreadLocalRandom.current().nextInt(shards.length)].addAndGet(quantity);
+            return quantity;
+        }
+
+        long available() {
+            long units = 0;
+            for (AtomicLong shard : shards) {
+                units += shard.get();
+            }
+            return units;
+        }
+    }
+}
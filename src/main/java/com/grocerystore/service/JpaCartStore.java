@@ -0,0 +1,100 @@
+package com.grocerystore.service;
+
+import com.grocerystore.dto.CartResponse;
+import com.grocerystore.entity.CartItem;
+import com.grocerystore.repository.CartRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Cart store that reads and writes cart_items on every call.
+ */
+@Component
+@ConditionalOnProperty(name = "grocerystore.cart.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaCartStore implements CartStore {
+
+    private final CartRepository cartRepository;
+
+    @Autowired
+    public JpaCartStore(CartRepository cartRepository) {
+        this.cartRepository = cartRepository;
+    }
+
+    @Override
+    public List<CartItem> findByUserIdWithProducts(String userId) {
+        return cartRepository.findByUserIdWithProducts(userId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CartResponse.CartItemResponse> findItemResponsesByUserId(String userId) {
+        return cartRepository.findItemResponsesByUserId(userId);
+    }
+
+    @Override
+    public Optional<CartItem> findById(Long itemId) {
+        return cartRepository.findById(itemId);
+    }
+
+    @Override
+    public Optional<CartItem> findByUserIdAndProductId(String userId, Long productId) {
+        return cartRepository.findByUserIdAndProductId(userId, productId);
+    }
+
+    @Override
+    public CartItem addQuantity(String userId, Long productId, Integer quantity) {
+        return cartRepository.upsertQuantity(userId, productId, quantity);
+    }
+
+    @Override
+    @Transactional
+    public Optional<QuantityChange> updateQuantity(Long itemId, Integer quantity) {
+        // The row stays locked until the transaction ends, so the quantity read is the one this update replaces
+        return cartRepository.findQuantityForUpdate(itemId)
+                .flatMap(previous -> cartRepository.findById(itemId).map(cartItem -> {
+                    cartItem.setQuantity(quantity);
+                    return new QuantityChange(cartRepository.save(cartItem), previous);
+                }));
+    }
+
+    @Override
+    @Transactional
+    public Optional<Integer> deleteById(Long itemId) {
+        // Locked first, so the quantity read is the one deleted; a removal that lost the race to a concurrent one
+        // deletes no row and reports nothing
+        Optional<Integer> quantity = cartRepository.findQuantityForUpdate(itemId);
+        return quantity.isPresent() && cartRepository.deleteItemById(itemId) == 1 ? quantity : Optional.empty();
+    }
+
+    @Override
+    @Transactional
+    public Map<Long, Integer> deleteByUserId(String userId) {
+        // Deleted by ID, so a line added after the lock was taken is neither deleted nor reported
+        List<CartRepository.LineQuantity> lines = cartRepository.findLineQuantitiesForUpdate(userId);
+        if (lines.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, Integer> deleted = new HashMap<>();
+        List<Long> ids = lines.stream().map(CartRepository.LineQuantity::getId).toList();
+        for (CartRepository.LineQuantity line : lines) {
+            deleted.merge(line.getProductId(), line.getQuantity(), Integer::sum);
+        }
+        cartRepository.deleteItemsByIds(ids);
+        return deleted;
+    }
+
+    @Override
+    @Transactional
+    public int deleteAbandoned(Collection<String> userIds, LocalDateTime cutoff) {
+        return cartRepository.deleteAbandoned(userIds, cutoff);
+    }
+}
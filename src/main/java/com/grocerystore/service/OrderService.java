@@ -2,54 +2,238 @@ package com.grocerystore.service;
 
 import com.grocerystore.dto.CheckoutRequest;
 import com.grocerystore.dto.OrderResponse;
+import com.grocerystore.dto.OrderSummary;
+import com.grocerystore.dto.OrderSummaryPage;
+import com.grocerystore.entity.CartItem;
 import com.grocerystore.entity.Order;
 import com.grocerystore.entity.OrderItem;
 import com.grocerystore.entity.Product;
 import com.grocerystore.repository.OrderRepository;
-import com.grocerystore.repository.ProductRepository;
-import com.grocerystore.service.CartService;
+import com.grocerystore.util.Money;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @Service
+@Timed("grocerystore.service")
 @Transactional
 public class OrderService {
 
+    private static final Logger log = LoggerFactory.getLogger(OrderService.class);
+
     private final OrderRepository orderRepository;
-    private final ProductRepository productRepository;
     private final CartService cartService;
+    private final PaymentGateway paymentGateway;
+    private final InventoryLedger inventoryLedger;
+    private final CheckoutIdempotencyStore idempotencyStore;
+    private final Executor paymentExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final long paymentTimeoutMillis;
+    private final long busyRetryAfterSeconds;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    // Checkout stage timers
+    private final MeterRegistry meterRegistry;
+    private final Timer cartLoadTimer;
+    private final Timer orderBuildTimer;
+    private final Timer cartClearTimer;
+    private final Timer paymentTimer;
+    private final Timer confirmTimer;
     
-    // Tax rate (8%)
-    private static final BigDecimal TAX_RATE = new BigDecimal("0.08");
+    // Tax rate (8%), in basis points
+    private static final long TAX_RATE_BASIS_POINTS = 800;
 
     @Autowired
-    public OrderService(OrderRepository orderRepository, ProductRepository productRepository, CartService cartService) {
+    public OrderService(OrderRepository orderRepository, CartService cartService, PaymentGateway paymentGateway,
+                        InventoryLedger inventoryLedger, CheckoutIdempotencyStore idempotencyStore,
+                        @Qualifier("paymentExecutor") Executor paymentExecutor, TransactionTemplate transactionTemplate,
+                        @Value("${grocerystore.payment.timeout-ms:10000}") long paymentTimeoutMillis,
+                        @Value("${grocerystore.payment.busy-retry-after-seconds:1}") long busyRetryAfterSeconds,
+                        @Value("${grocerystore.order.page-size.default:20}") int defaultPageSize,
+                        @Value("${grocerystore.order.page-size.max:100}") int maxPageSize,
+                        MeterRegistry meterRegistry) {
         this.orderRepository = orderRepository;
-        this.productRepository = productRepository;
         this.cartService = cartService;
+        this.paymentGateway = paymentGateway;
+        this.inventoryLedger = inventoryLedger;
+        this.idempotencyStore = idempotencyStore;
+        this.paymentExecutor = paymentExecutor;
+        this.transactionTemplate = transactionTemplate;
+        this.paymentTimeoutMillis = paymentTimeoutMillis;
+        this.busyRetryAfterSeconds = busyRetryAfterSeconds;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.meterRegistry = meterRegistry;
+        this.cartLoadTimer = checkoutStageTimer("cart_load");
+        this.orderBuildTimer = checkoutStageTimer("order_build");
+        this.cartClearTimer = checkoutStageTimer("cart_clear");
+        this.paymentTimer = checkoutStageTimer("payment");
+        this.confirmTimer = checkoutStageTimer("confirm");
     }
 
     /**
-     * Process checkout and create order
+     * Process checkout in stages so no database transaction is held open during payment:
+     * the order is reserved as PENDING and committed, payment is authorized asynchronously on the
+     * payment executor, and a short follow-up transaction confirms or cancels the order.
+     * Clients poll GET /api/order/{orderId} for the outcome.
      * @param checkoutRequest the checkout request with address and payment info
-     * @return order response with confirmation details
+     * @return the PENDING order
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public OrderResponse processCheckout(CheckoutRequest checkoutRequest) {
-        // 1. Get user's cart
-        var cartData = cartService.getCart(checkoutRequest.getUserId());
+        return checkout(checkoutRequest, null);
+    }
+
+    /**
+     * Process checkout at most once per user and Idempotency-Key.
+     * A retry with the same key and request replays the first checkout's response instead of placing
+     * another order; a retry while the first is still running waits for it.
+     * @param checkoutRequest the checkout request with address and payment info
+     * @param idempotencyKey the client's Idempotency-Key
+     * @return the PENDING order, and whether it was replayed from an earlier request
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CheckoutIdempotencyStore.Outcome processCheckout(CheckoutRequest checkoutRequest, String idempotencyKey) {
+        return idempotencyStore.execute(checkoutRequest.getUserId(), idempotencyKey, checkoutRequest,
+                claim -> checkout(checkoutRequest, claim));
+    }
+
+    private OrderResponse checkout(CheckoutRequest checkoutRequest, CheckoutIdempotencyStore.Claim claim) {
+        // Stage 1: reserve the order and commit before the payment gateway is involved;
+        // the idempotency key, if any, is recorded in the same transaction
+        OrderResponse orderResponse = transactionTemplate.execute(status -> {
+            OrderResponse response = new OrderResponse(createPendingOrder(checkoutRequest));
+            if (claim != null) {
+                claim.record(response);
+            }
+            return response;
+        });
+
+        // Stage 2: authorize payment off the request thread
+        Long orderId = orderResponse.getOrderId();
+        Order.PaymentMethod paymentMethod = orderResponse.getPaymentMethod();
+        BigDecimal amount = orderResponse.getTotalAmount();
+        String transactionId = orderResponse.getPaymentTransactionId();
+        CompletableFuture<Boolean> authorization;
+        try {
+            authorization = CompletableFuture.supplyAsync(
+                    () -> paymentTimer.record(() -> paymentGateway.authorize(paymentMethod, amount, transactionId)),
+                    paymentExecutor);
+        } catch (RejectedExecutionException e) {
+            abandonCheckout(orderId, checkoutRequest.getUserId(), claim);
+            throw new PaymentServiceBusyException(busyRetryAfterSeconds);
+        }
+
+        // Stage 3: short transaction to record the outcome, bounded by the payment timeout. It runs back on the
+        // payment executor, since a timeout completes the timed copy on the JDK's timer thread; the authorization
+        // itself keeps running. Should this never run (the executor rejects it or the transaction fails), the
+        // stale order sweep cancels the order.
+        authorization.copy()
+                .orTimeout(paymentTimeoutMillis, TimeUnit.MILLISECONDS)
+                .whenCompleteAsync((authorized, error) -> recordPaymentOutcome(orderId, transactionId, authorization,
+                        error == null && Boolean.TRUE.equals(authorized), error), paymentExecutor);
+
+        return orderResponse;
+    }
+
+    private void recordPaymentOutcome(Long orderId, String transactionId, CompletableFuture<Boolean> authorization,
+                                      boolean authorized, Throwable error) {
+        if (error != null) {
+            log.warn("Payment authorization failed for order {}", orderId, error);
+            // A timed out authorization may still succeed; the order is not confirmed by it, so it is voided
+            authorization.thenAccept(lateAuthorized -> {
+                if (Boolean.TRUE.equals(lateAuthorized)) {
+                    voidAuthorization(orderId, transactionId);
+                }
+            });
+        }
+        try {
+            if (!completeCheckout(orderId, authorized) && authorized) {
+                // Cancelled while payment was in flight
+                voidAuthorization(orderId, transactionId);
+            }
+        } catch (RuntimeException e) {
+            log.error("Could not record the payment outcome of order {}; it stays PENDING", orderId, e);
+        }
+    }
+
+    private void voidAuthorization(Long orderId, String transactionId) {
+        try {
+            paymentGateway.voidAuthorization(transactionId);
+            log.info("Voided payment {} of cancelled order {}", transactionId, orderId);
+        } catch (RuntimeException e) {
+            log.error("Could not void payment {} of cancelled order {}; it must be reversed manually",
+                    transactionId, orderId, e);
+        }
+    }
+
+    // Undoes a checkout whose payment could not be started, in one transaction: the order is cancelled and its
+    // stock released, its lines go back into the cart and the idempotency key is dropped, so the client can retry
+    private void abandonCheckout(Long orderId, String userId, CheckoutIdempotencyStore.Claim claim) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (orderRepository.updateStatusIfCurrent(orderId, Order.OrderStatus.PENDING, Order.OrderStatus.CANCELLED) == 0) {
+                    return;
+                }
+                Map<Long, Integer> quantities = quantitiesOf(orderRepository.findById(orderId).orElseThrow());
+                releaseStockOnCommit(quantities);
+                cartService.restoreCart(userId, quantities);
+                if (claim != null) {
+                    claim.forget();
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Could not undo checkout of order {}; it stays PENDING", orderId, e);
+        }
+    }
+
+    private Order createPendingOrder(CheckoutRequest checkoutRequest) {
+        // 1. Get user's cart items with their products (single query)
+        List<CartItem> cartItems = cartLoadTimer.record(() -> cartService.getCartItemsWithProducts(checkoutRequest.getUserId()));
         
-        if (cartData.getItems() == null || cartData.getItems().isEmpty()) {
+        if (cartItems.isEmpty()) {
             throw new IllegalArgumentException("Cart is empty. Cannot process checkout.");
         }
 
+        Timer.Sample orderBuild = Timer.start(meterRegistry);
+
+        // Reserve stock for every line at once; given back if the order is not committed
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (CartItem item : cartItems) {
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        inventoryLedger.reserve(quantities);
+        releaseStockOnRollback(quantities);
+
         // 2. Create new order
         Order order = new Order();
         order.setUserId(checkoutRequest.getUserId());
@@ -77,34 +261,28 @@ public class OrderService {
         order.setDeliveryInstructions(checkoutRequest.getDeliveryInstructions());
         order.setEstimatedDeliveryDate(calculateEstimatedDeliveryDate());
         
-        // 3. Calculate totals
-        BigDecimal subtotal = cartData.getTotalAmount();
-        BigDecimal taxAmount = subtotal.multiply(TAX_RATE);
-        BigDecimal totalAmount = subtotal.add(taxAmount);
-        
-        order.setSubtotal(subtotal);
-        order.setTaxAmount(taxAmount);
-        order.setTotalAmount(totalAmount);
+        // 3. Calculate totals in cents; tax is rounded half-even to the cent once, on the subtotal
+        long subtotal = 0;
+        for (CartItem item : cartItems) {
+            subtotal = Math.addExact(subtotal,
+                    Math.multiplyExact(item.getProduct().priceMinorUnits(), item.getQuantity()));
+        }
+        long taxAmount = Money.applyRate(subtotal, TAX_RATE_BASIS_POINTS);
         
-        // 4. Save order first to get ID
-        order = orderRepository.save(order);
+        order.setSubtotal(Money.toBigDecimal(subtotal));
+        order.setTaxAmount(Money.toBigDecimal(taxAmount));
+        order.setTotalAmount(Money.toBigDecimal(subtotal + taxAmount));
         
-        // 5. Create order items from cart items
-        List<OrderItem> orderItems = new ArrayList<>();
-        for (var cartItem : cartData.getItems()) {
-            // Get current product details
-            Optional<Product> productOpt = productRepository.findById(cartItem.getProductId());
-            if (productOpt.isEmpty()) {
-                throw new IllegalArgumentException("Product not found: " + cartItem.getProductId());
-            }
-            
-            Product product = productOpt.get();
+        // 4. Create order items from the already loaded cart products (no further queries)
+        List<OrderItem> orderItems = new ArrayList<>(cartItems.size());
+        for (CartItem cartItem : cartItems) {
+            Product product = cartItem.getProduct();
             
             OrderItem orderItem = new OrderItem(
                     order,
-                    cartItem.getProductId(),
-                    cartItem.getProductName(),
-                    cartItem.getProductPrice(),
+                    product.getId(),
+                    product.getName(),
+                    product.getPrice(),
                     cartItem.getQuantity(),
                     product.getDescription(),
                     product.getImageUrl(),
@@ -116,48 +294,116 @@ public class OrderService {
         
         order.setOrderItems(orderItems);
         
-        // 6. Save order with items
-        order = orderRepository.save(order);
-        
-        // 7. Process payment simulation
-        boolean paymentSuccess = processPayment(order);
-        if (!paymentSuccess) {
-            order.setStatus(Order.OrderStatus.CANCELLED);
-            orderRepository.save(order);
-            throw new RuntimeException("Payment processing failed. Order has been cancelled.");
-        }
-        
-        // 8. Confirm order
-        order.setStatus(Order.OrderStatus.CONFIRMED);
+        // 5. Persist the PENDING order and its items once; inserts are batched at commit
         order = orderRepository.save(order);
+        orderBuild.stop(orderBuildTimer);
         
-        // 9. Clear user's cart after successful order
-        cartService.clearCart(checkoutRequest.getUserId());
+        // 6. The cart has been turned into an order; clearing it now also prevents a second
+        //    checkout of the same cart while payment is still in flight
+        cartClearTimer.record(() -> cartService.clearCart(checkoutRequest.getUserId()));
         
-        // 10. Return order response
-        return new OrderResponse(order);
+        return order;
+    }
+
+    // Moves the order out of PENDING only if it is still PENDING, so that of the payment callback, the stale
+    // order sweep and a cancellation by the user exactly one settles the order and releases its stock
+    private boolean completeCheckout(Long orderId, boolean paymentAuthorized) {
+        Order.OrderStatus outcome = paymentAuthorized ? Order.OrderStatus.CONFIRMED : Order.OrderStatus.CANCELLED;
+        return Boolean.TRUE.equals(confirmTimer.record(() -> transactionTemplate.execute(status -> {
+            if (orderRepository.updateStatusIfCurrent(orderId, Order.OrderStatus.PENDING, outcome) == 0) {
+                return false;
+            }
+            if (!paymentAuthorized) {
+                orderRepository.findById(orderId).ifPresent(order -> releaseStockOnCommit(quantitiesOf(order)));
+            }
+            return true;
+        })));
     }
 
     /**
-     * Get order by ID
+     * Cancel orders left PENDING since before a cutoff, give back their stock and void their payments. An order stays
+     * PENDING only if its payment outcome was never recorded, e.g. when the server stopped while payment was in flight.
+     * @param cutoff orders placed before this time are stale
+     * @param limit the most orders to cancel
+     * @return number of orders cancelled
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int cancelStalePendingOrders(LocalDateTime cutoff, int limit) {
+        List<Long> orderIds = orderRepository.findIdsByStatusPlacedBefore(Order.OrderStatus.PENDING, cutoff,
+                PageRequest.of(0, limit));
+        int cancelled = 0;
+        for (Long orderId : orderIds) {
+            try {
+                if (completeCheckout(orderId, false)) {
+                    log.warn("Cancelled order {}: still PENDING since before {}", orderId, cutoff);
+                    cancelled++;
+                    // Its payment may have been authorized without the outcome being recorded
+                    orderRepository.findPaymentTransactionIdById(orderId)
+                            .ifPresent(transactionId -> voidAuthorization(orderId, transactionId));
+                }
+            } catch (RuntimeException e) {
+                log.error("Could not cancel stale order {}", orderId, e);
+            }
+        }
+        return cancelled;
+    }
+
+    private Timer checkoutStageTimer(String stage) {
+        return Timer.builder("grocerystore.checkout.stage")
+                .description("Time spent in each checkout stage")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Get order by ID, read straight into the response DTOs without loading Order entities
      * @param orderId the order ID
      * @return order response
      */
+    @Transactional(readOnly = true)
     public Optional<OrderResponse> getOrderById(Long orderId) {
-        return orderRepository.findByIdWithItems(orderId)
-                .map(OrderResponse::new);
+        return orderRepository.findResponseById(orderId);
     }
 
     /**
-     * Get user's orders
+     * Get one page of a user's order history, newest first, using keyset pagination on (orderDate, id).
+     * Only summaries are loaded, in one aggregate query; items come with GET /api/order/{orderId}.
      * @param userId the user ID
-     * @return list of user orders
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @param limit the page size, or null for the configured default
+     * @return the page with the cursor of the following page (null on the last page)
+     * @throws IllegalArgumentException if the cursor is malformed
      */
-    public List<OrderResponse> getUserOrders(String userId) {
-        List<Order> orders = orderRepository.findByUserIdWithItems(userId);
-        return orders.stream()
-                .map(OrderResponse::new)
-                .toList();
+    @Transactional(readOnly = true)
+    public OrderSummaryPage getUserOrders(String userId, String cursor, Integer limit) {
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        // Fetch one extra row to know whether another page follows
+        Pageable page = PageRequest.of(0, pageSize + 1);
+        List<OrderSummary> orders;
+        if (cursor != null && !cursor.isEmpty()) {
+            LocalDateTime beforeDate;
+            Long beforeId;
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.indexOf(':');
+                beforeId = Long.valueOf(decoded.substring(0, separator));
+                beforeDate = LocalDateTime.parse(decoded.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            orders = orderRepository.findSummariesByUserIdBefore(userId, beforeDate, beforeId, page);
+        } else {
+            orders = orderRepository.findSummariesByUserId(userId, page);
+        }
+
+        if (orders.size() <= pageSize) {
+            return new OrderSummaryPage(orders, null, pageSize);
+        }
+        List<OrderSummary> items = orders.subList(0, pageSize);
+        OrderSummary last = items.get(pageSize - 1);
+        String nextCursor = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((last.getOrderId() + ":" + last.getOrderDate()).getBytes(StandardCharsets.UTF_8));
+        return new OrderSummaryPage(items, nextCursor, pageSize);
     }
 
     /**
@@ -165,13 +411,26 @@ public class OrderService {
      * @param orderId the order ID
      * @param status the new status
      * @return updated order response
+     * @throws IllegalStateException if the order's status changed while it was being updated
      */
     public Optional<OrderResponse> updateOrderStatus(Long orderId, Order.OrderStatus status) {
         return orderRepository.findById(orderId)
                 .map(order -> {
-                    order.setStatus(status);
-                    Order savedOrder = orderRepository.save(order);
-                    return new OrderResponse(savedOrder);
+                    Order.OrderStatus previous = order.getStatus();
+                    // Conditional, as the payment outcome or a cancellation may be recorded for the order meanwhile
+                    if (previous != status && orderRepository.updateStatusIfCurrent(orderId, previous, status) == 0) {
+                        throw new IllegalStateException("Order " + orderId + " changed status meanwhile, please retry");
+                    }
+                    if (status == Order.OrderStatus.CANCELLED && previous != Order.OrderStatus.CANCELLED) {
+                        releaseStockOnCommit(quantitiesOf(order));
+                    } else if (previous == Order.OrderStatus.CANCELLED && status != Order.OrderStatus.CANCELLED) {
+                        // Reinstating a cancelled order needs its stock back
+                        inventoryLedger.reserve(quantitiesOf(order));
+                        releaseStockOnRollback(quantitiesOf(order));
+                    }
+                    OrderResponse response = new OrderResponse(order);
+                    response.setStatus(status);
+                    return response;
                 });
     }
 
@@ -192,8 +451,11 @@ public class OrderService {
                 (order.getStatus() == Order.OrderStatus.PENDING || 
                  order.getStatus() == Order.OrderStatus.CONFIRMED)) {
                 
-                order.setStatus(Order.OrderStatus.CANCELLED);
-                orderRepository.save(order);
+                // Conditional, as the payment outcome may be recorded for the order meanwhile
+                if (orderRepository.updateStatusIfCurrent(orderId, order.getStatus(), Order.OrderStatus.CANCELLED) == 0) {
+                    return false;
+                }
+                releaseStockOnCommit(quantitiesOf(order));
                 return true;
             }
         }
@@ -212,47 +474,42 @@ public class OrderService {
 
     // Private helper methods
 
-    private LocalDateTime calculateEstimatedDeliveryDate() {
-        // For demo: 3-5 business days
-        return LocalDateTime.now().plusDays(4);
+    // Give back stock reserved in the current transaction if it rolls back
+    private void releaseStockOnRollback(Map<Long, Integer> quantities) {
+        releaseStockAfterCompletion(quantities, false);
     }
 
-    private String generateTransactionId() {
-        // Generate a simple transaction ID for demo purposes
-        return "TXN-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    // Give back the stock of an order cancelled in the current transaction once it commits
+    private void releaseStockOnCommit(Map<Long, Integer> quantities) {
+        releaseStockAfterCompletion(quantities, true);
     }
 
-    private boolean processPayment(Order order) {
-        // Simulate payment processing
-        // In real application, this would integrate with payment gateway
-        
-        switch (order.getPaymentMethod()) {
-            case CREDIT_CARD:
-            case DEBIT_CARD:
-                // Simulate credit/debit card processing
-                return simulateCardPayment(order);
-            
-            case PAYPAL:
-                // Simulate PayPal processing
-                return simulatePayPalPayment(order);
-            
-            case CASH_ON_DELIVERY:
-                // Cash on delivery - always succeeds
-                return true;
-            
-            default:
-                return false;
+    private void releaseStockAfterCompletion(Map<Long, Integer> quantities, boolean onCommit) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if ((status == STATUS_COMMITTED) == onCommit) {
+                    inventoryLedger.release(quantities);
+                }
+            }
+        });
+    }
+
+    private Map<Long, Integer> quantitiesOf(Order order) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderItem item : order.getOrderItems()) {
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
         }
+        return quantities;
     }
 
-    private boolean simulateCardPayment(Order order) {
-        // For demo: 95% success rate
-        // In real app, this would call Stripe, Square, etc.
-        return Math.random() > 0.05; // 95% success rate
+    private LocalDateTime calculateEstimatedDeliveryDate() {
+        // For demo: 3-5 business days
+        return LocalDateTime.now().plusDays(4);
     }
 
-    private boolean simulatePayPalPayment(Order order) {
-        // For demo: 98% success rate
-        return Math.random() > 0.02; // 98% success rate
+    private String generateTransactionId() {
+        // Generate a simple transaction ID for demo purposes
+        return "TXN-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.grocerystore.service;
+
+import com.grocerystore.entity.Order;
+
+import java.math.BigDecimal;
+
+/**
+ * Authorizes payments for orders.
+ * Implementations may block for the full gateway round trip; callers run them off the request thread
+ * and outside any database transaction.
+ */
+public interface PaymentGateway {
+
+    /**
+     * Authorize a payment
+     * @param paymentMethod the payment method chosen at checkout
+     * @param amount the amount to authorize
+     * @param transactionId the order's payment transaction ID
+     * @return true if the payment was authorized
+     */
+    boolean authorize(Order.PaymentMethod paymentMethod, BigDecimal amount, String transactionId);
+
+    /**
+     * Void the authorization of a transaction, so the customer is not charged for an order that was cancelled.
+     * Voiding a transaction that was never authorized, or was already voided, does nothing.
+     * @param transactionId the order's payment transaction ID
+     */
+    void voidAuthorization(String transactionId);
+}
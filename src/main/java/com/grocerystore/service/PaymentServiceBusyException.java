@@ -0,0 +1,19 @@
+package com.grocerystore.service;
+
+/**
+ * Thrown by checkout when the payment executor has no room for another authorization.
+ * The checkout has been undone by then, so the client can retry it unchanged after {@link #getRetryAfterSeconds()}.
+ */
+public class PaymentServiceBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public PaymentServiceBusyException(long retryAfterSeconds) {
+        super("Payment service is busy. Your cart has been kept, please try again.");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,234 @@
+package com.grocerystore.service;
+
+import com.grocerystore.entity.Category;
+import com.grocerystore.entity.Product;
+import com.grocerystore.event.ProductChangeEvent;
+import com.grocerystore.event.ProductChangeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache for the product catalog.
+ * Reads are served from an immutable CatalogSnapshot with a single volatile read;
+ * writes build a new snapshot and swap it in atomically.
+ * A catalog larger than grocerystore.catalog.cache.max-entries is not cached: reads load it
+ * (or the requested products) every time until the catalog is reloaded.
+ */
+@Component
+@Order(ProductChangeListener.CATALOG_ORDER)
+public class ProductCatalogCache implements ProductChangeListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalogCache.class);
+
+    private final int maxEntries;
+    // A ReentrantLock rather than synchronized: loads hold it across a database call,
+    // which would pin the carrier thread when requests run on virtual threads
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile CatalogSnapshot snapshot;
+    // The catalog outgrew maxEntries; cleared when the catalog is reloaded
+    private volatile boolean oversized;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ProductCatalogCache(@Value("${grocerystore.catalog.cache.max-entries:10000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Get the current catalog snapshot, loading it on first use
+     * @param loader loads all products
+     * @return the current snapshot, or a snapshot loaded for this read only if the catalog is too large to cache
+     */
+    public CatalogSnapshot getSnapshot(Supplier<List<Product>> loader) {
+        CatalogSnapshot current = snapshot;
+        if (current != null) {
+            hits.increment();
+            return current;
+        }
+        if (oversized) {
+            misses.increment();
+            return CatalogSnapshot.of(loader.get());
+        }
+        writeLock.lock();
+        try {
+            if (snapshot != null) {
+                return snapshot;
+            }
+            misses.increment();
+            CatalogSnapshot loaded = CatalogSnapshot.of(loader.get());
+            if (loaded.size() <= maxEntries) {
+                snapshot = loaded;
+            } else {
+                markOversized(loaded.size());
+            }
+            return loaded;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // The cached snapshot, loading it on first use; null if the catalog is too large to cache
+    private CatalogSnapshot cachedSnapshot(Supplier<List<Product>> loader) {
+        return oversized ? null : getSnapshot(loader);
+    }
+
+    /**
+     * Get all products ordered by name
+     * @param loader loads all products on first use
+     * @return list of all products ordered by name
+     */
+    public List<Product> getAllProducts(Supplier<List<Product>> loader) {
+        return getSnapshot(loader).getProductsByName();
+    }
+
+    /**
+     * Get products in a category ordered by name
+     * @param category the category
+     * @param loader loads all products on first use
+     * @return list of products in the category
+     */
+    public List<Product> getProductsByCategory(Category category, Supplier<List<Product>> loader) {
+        return getSnapshot(loader).getProductsByCategory(category);
+    }
+
+    /**
+     * Get a product by ID, falling back to the loader if it is not in the snapshot
+     * @param id the product ID
+     * @param loader loads all products on first use
+     * @param fallback loads a single product by ID
+     * @return optional containing the product if found
+     */
+    public Optional<Product> getProductById(Long id, Supplier<List<Product>> loader,
+                                            Function<Long, Optional<Product>> fallback) {
+        CatalogSnapshot current = cachedSnapshot(loader);
+        Product product = current != null ? current.getProduct(id) : null;
+        if (product != null) {
+            return Optional.of(product);
+        }
+        misses.increment();
+        return fallback.apply(id);
+    }
+
+    /**
+     * Get several products by ID, loading any that are not in the snapshot with one fallback call
+     * @param ids the product IDs
+     * @param loader loads all products on first use
+     * @param fallback loads the missing products by ID
+     * @return the products found, by ID
+     */
+    public Map<Long, Product> getProductsByIds(Collection<Long> ids, Supplier<List<Product>> loader,
+                                               Function<Collection<Long>, List<Product>> fallback) {
+        CatalogSnapshot current = cachedSnapshot(loader);
+        Map<Long, Product> found = new HashMap<>();
+        Set<Long> missing = new HashSet<>();
+        for (Long id : ids) {
+            Product product = current != null ? current.getProduct(id) : null;
+            if (product != null) {
+                found.put(id, product);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            misses.increment();
+            fallback.apply(missing).forEach(product -> found.put(product.getId(), product));
+        }
+        return found;
+    }
+
+    /**
+     * Swap in a snapshot containing the saved product
+     * @param product the created or updated product
+     */
+    public void productSaved(Product product) {
+        writeLock.lock();
+        try {
+            if (snapshot != null) {
+                CatalogSnapshot next = snapshot.withProduct(product);
+                if (next.size() <= maxEntries) {
+                    snapshot = next;
+                } else {
+                    markOversized(next.size());
+                    snapshot = null;
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Swap in a snapshot without the deleted product
+     * @param id the deleted product ID
+     */
+    public void productDeleted(Long id) {
+        writeLock.lock();
+        try {
+            if (snapshot != null) {
+                snapshot = snapshot.withoutProduct(id);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Drop the current snapshot so the next read reloads the catalog, and caches it again if it fits
+     */
+    public void invalidate() {
+        writeLock.lock();
+        try {
+            snapshot = null;
+            oversized = false;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void markOversized(int size) {
+        oversized = true;
+        logger.warn("Product catalog has {} products, more than grocerystore.catalog.cache.max-entries={}; "
+                + "it is not cached until the catalog is reloaded", size, maxEntries);
+    }
+
+    @Override
+    public void onProductChange(ProductChangeEvent event) {
+        switch (event.getType()) {
+            case SAVED -> productSaved(event.getProduct());
+            case DELETED -> productDeleted(event.getProductId());
+            case CATALOG_RELOADED -> invalidate();
+        }
+    }
+
+    /**
+     * Get cache statistics
+     * @return hit/miss counters and current snapshot details
+     */
+    public Map<String, Object> getStats() {
+        CatalogSnapshot current = snapshot;
+        return Map.of(
+                "hits", hits.sum(),
+                "misses", misses.sum(),
+                "snapshotVersion", current != null ? current.getVersion() : 0L,
+                "cachedProducts", current != null ? current.size() : 0,
+                "maxEntries", maxEntries,
+                "oversized", oversized
+        );
+    }
+}
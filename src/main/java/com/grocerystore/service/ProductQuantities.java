@@ -0,0 +1,268 @@
+package com.grocerystore.service;
+
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Persistent map from product ID to quantity, used by CartSummary.
+ * A hash trie over a mix of the ID: a change copies only the nodes on the path to its key and shares the rest with
+ * the map it was derived from, so deriving a map is O(log n) and two versions can be compared by skipping the
+ * subtrees they share.
+ */
+final class ProductQuantities {
+
+    static final ProductQuantities EMPTY = new ProductQuantities(null, 0);
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    // Odd, so multiplying by it maps distinct IDs to distinct hashes, and any two keys part within 64 bits
+    private static final long MIX = 0x9E3779B97F4A7C15L;
+
+    // null, a Leaf or a Node
+    private final Object root;
+    private final int size;
+
+    private ProductQuantities(Object root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    static ProductQuantities of(Map<Long, Integer> quantities) {
+        ProductQuantities map = EMPTY;
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            map = map.with(entry.getKey(), entry.getValue());
+        }
+        return map;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param productId the product ID
+     * @return the product's quantity, 0 if it is not in the map
+     */
+    int get(Long productId) {
+        long hash = hash(productId);
+        Object node = root;
+        for (int shift = 0; node instanceof Node branch; shift += BITS) {
+            int bit = bit(hash, shift);
+            if ((branch.bitmap & bit) == 0) {
+                return 0;
+            }
+            node = branch.children[branch.index(bit)];
+        }
+        return node instanceof Leaf leaf && leaf.productId == productId ? leaf.quantity : 0;
+    }
+
+    boolean contains(Long productId) {
+        return get(productId) > 0;
+    }
+
+    /**
+     * Derive a map with a product's quantity set
+     * @param productId the product ID
+     * @param quantity the new quantity; 0 or less removes the product
+     * @return the derived map
+     */
+    ProductQuantities with(Long productId, int quantity) {
+        long hash = hash(productId);
+        boolean present = contains(productId);
+        if (quantity > 0) {
+            return new ProductQuantities(put(root, new Leaf(productId, hash, quantity), 0), present ? size : size + 1);
+        }
+        return present ? new ProductQuantities(remove(root, productId, hash, 0), size - 1) : this;
+    }
+
+    void forEachProductId(Consumer<Long> action) {
+        forEach(root, action);
+    }
+
+    boolean anyProductId(Predicate<Long> predicate) {
+        return anyMatch(root, predicate);
+    }
+
+    /**
+     * Report the products present in only one of two maps, skipping the subtrees they share
+     * @param from the earlier map
+     * @param to the later map
+     * @param removed called with each product ID in from but not in to
+     * @param added called with each product ID in to but not in from
+     */
+    static void diff(ProductQuantities from, ProductQuantities to, Consumer<Long> removed, Consumer<Long> added) {
+        diff(from.root, to.root, 0, removed, added);
+    }
+
+    private static void diff(Object from, Object to, int shift, Consumer<Long> removed, Consumer<Long> added) {
+        if (from == to) {
+            return;
+        }
+        if (from == null || to == null) {
+            forEach(from, removed);
+            forEach(to, added);
+        } else if (from instanceof Node fromBranch && to instanceof Node toBranch) {
+            int bits = fromBranch.bitmap | toBranch.bitmap;
+            while (bits != 0) {
+                int bit = bits & -bits;
+                bits &= bits - 1;
+                diff(fromBranch.child(bit), toBranch.child(bit), shift + BITS, removed, added);
+            }
+        } else if (from instanceof Leaf leaf) {
+            // A leaf against a subtree: only the leaf's key can be in both
+            if (!contains(to, leaf, shift)) {
+                removed.accept(leaf.productId);
+            }
+            forEach(to, productId -> {
+                if (productId != leaf.productId) {
+                    added.accept(productId);
+                }
+            });
+        } else {
+            Leaf leaf = (Leaf) to;
+            forEach(from, productId -> {
+                if (productId != leaf.productId) {
+                    removed.accept(productId);
+                }
+            });
+            if (!contains(from, leaf, shift)) {
+                added.accept(leaf.productId);
+            }
+        }
+    }
+
+    private static Object put(Object node, Leaf leaf, int shift) {
+        if (node == null) {
+            return leaf;
+        }
+        if (node instanceof Leaf existing) {
+            return existing.productId == leaf.productId ? leaf : branch(existing, leaf, shift);
+        }
+        Node branch = (Node) node;
+        int bit = bit(leaf.hash, shift);
+        int index = branch.index(bit);
+        if ((branch.bitmap & bit) == 0) {
+            return branch.inserted(bit, index, leaf);
+        }
+        return branch.replaced(index, put(branch.children[index], leaf, shift + BITS));
+    }
+
+    private static Object branch(Leaf first, Leaf second, int shift) {
+        int firstBit = bit(first.hash, shift);
+        int secondBit = bit(second.hash, shift);
+        if (firstBit == secondBit) {
+            return new Node(firstBit, new Object[] {branch(first, second, shift + BITS)});
+        }
+        boolean firstLower = Integer.compareUnsigned(firstBit, secondBit) < 0;
+        return new Node(firstBit | secondBit, firstLower ? new Object[] {first, second} : new Object[] {second, first});
+    }
+
+    private static Object remove(Object node, long productId, long hash, int shift) {
+        if (node instanceof Leaf leaf) {
+            return leaf.productId == productId ? null : leaf;
+        }
+        Node branch = (Node) node;
+        int bit = bit(hash, shift);
+        if ((branch.bitmap & bit) == 0) {
+            return branch;
+        }
+        int index = branch.index(bit);
+        Object child = branch.children[index];
+        Object updated = remove(child, productId, hash, shift + BITS);
+        if (updated == child) {
+            return branch;
+        }
+        if (updated == null) {
+            if (branch.children.length == 2 && branch.children[1 - index] instanceof Leaf other) {
+                return other;
+            }
+            return branch.children.length == 1 ? null : branch.without(bit, index);
+        }
+        // A branch left with a single leaf is replaced by the leaf, so every branch holds at least two keys
+        return updated instanceof Leaf && branch.children.length == 1 ? updated : branch.replaced(index, updated);
+    }
+
+    private static boolean contains(Object node, Leaf leaf, int shift) {
+        while (node instanceof Node branch) {
+            node = branch.child(bit(leaf.hash, shift));
+            shift += BITS;
+        }
+        return node instanceof Leaf found && found.productId == leaf.productId;
+    }
+
+    private static void forEach(Object node, Consumer<Long> action) {
+        if (node instanceof Leaf leaf) {
+            action.accept(leaf.productId);
+        } else if (node instanceof Node branch) {
+            for (Object child : branch.children) {
+                forEach(child, action);
+            }
+        }
+    }
+
+    private static boolean anyMatch(Object node, Predicate<Long> predicate) {
+        if (node instanceof Leaf leaf) {
+            return predicate.test(leaf.productId);
+        }
+        if (node instanceof Node branch) {
+            for (Object child : branch.children) {
+                if (anyMatch(child, predicate)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static long hash(long productId) {
+        return productId * MIX;
+    }
+
+    private static int bit(long hash, int shift) {
+        return 1 << ((int) (hash >>> shift) & MASK);
+    }
+
+    private record Leaf(long productId, long hash, int quantity) {}
+
+    private static final class Node {
+
+        private final int bitmap;
+        // One child per bit set in the bitmap, in bit order
+        private final Object[] children;
+
+        Node(int bitmap, Object[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        Object child(int bit) {
+            return (bitmap & bit) != 0 ? children[index(bit)] : null;
+        }
+
+        Node inserted(int bit, int index, Object child) {
+            Object[] copy = new Object[children.length + 1];
+            System.arraycopy(children, 0, copy, 0, index);
+            copy[index] = child;
+            System.arraycopy(children, index, copy, index + 1, children.length - index);
+            return new Node(bitmap | bit, copy);
+        }
+
+        Node replaced(int index, Object child) {
+            Object[] copy = children.clone();
+            copy[index] = child;
+            return new Node(bitmap, copy);
+        }
+
+        Node without(int bit, int index) {
+            Object[] copy = new Object[children.length - 1];
+            System.arraycopy(children, 0, copy, 0, index);
+            System.arraycopy(children, index + 1, copy, index, copy.length - index);
+            return new Node(bitmap & ~bit, copy);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.grocerystore.service;
+
+import com.grocerystore.entity.Product;
+import com.grocerystore.event.ProductChangeEvent;
+import com.grocerystore.event.ProductChangeListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * In-process inverted index over product names and descriptions.
+ * Every query term is prefix-matched against the indexed terms; a product must match all
+ * query terms and results are ranked by how well (name over description, exact over prefix) they match.
+ */
+@Component
+@Order(ProductChangeListener.CATALOG_ORDER)
+public class ProductSearchIndex implements ProductChangeListener {
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int EXACT_MATCH_BONUS = 2;
+    private static final int NAME_PREFIX_BONUS = 10;
+
+    // term -> (product ID -> term weight within that product)
+    private final ConcurrentSkipListMap<String, Map<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+    private final Map<Long, IndexedProduct> documents = new ConcurrentHashMap<>();
+
+    // A ReentrantLock rather than synchronized: loads hold it across a database call,
+    // which would pin the carrier thread when requests run on virtual threads
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile boolean loaded;
+
+    /**
+     * Search products by name and description
+     * @param query the search text
+     * @param loader loads all products on first use
+     * @return matching products, best match first; empty if the query has no terms
+     */
+    public List<Product> search(String query, Supplier<List<Product>> loader) {
+        ensureLoaded(loader);
+
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty()) {
+            // Punctuation or whitespace only: nothing to match, rather than the whole catalog
+            return Collections.emptyList();
+        }
+
+        Map<Long, Integer> scores = null;
+        for (String queryTerm : queryTerms) {
+            Map<Long, Integer> termScores = scoreTerm(queryTerm);
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                // Keep only products matching every query term
+                Map<Long, Integer> combined = new HashMap<>();
+                for (Map.Entry<Long, Integer> entry : scores.entrySet()) {
+                    Integer termScore = termScores.get(entry.getKey());
+                    if (termScore != null) {
+                        combined.put(entry.getKey(), entry.getValue() + termScore);
+                    }
+                }
+                scores = combined;
+            }
+            if (scores.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+
+        String normalizedQuery = query.trim().toLowerCase(Locale.ROOT);
+        List<ScoredProduct> results = new ArrayList<>(scores.size());
+        for (Map.Entry<Long, Integer> entry : scores.entrySet()) {
+            IndexedProduct document = documents.get(entry.getKey());
+            if (document == null) {
+                continue;
+            }
+            int score = entry.getValue();
+            if (document.lowerCaseName.startsWith(normalizedQuery)) {
+                score += NAME_PREFIX_BONUS;
+            }
+            results.add(new ScoredProduct(document.product, score));
+        }
+        results.sort(Comparator.comparingInt(ScoredProduct::score).reversed()
+                .thenComparing(ScoredProduct::product, CatalogSnapshot.NAME_ORDER));
+
+        List<Product> products = new ArrayList<>(results.size());
+        for (ScoredProduct result : results) {
+            products.add(result.product());
+        }
+        return products;
+    }
+
+    /**
+     * Index a created or updated product, replacing its previous terms
+     * @param product the saved product
+     */
+    public void productSaved(Product product) {
+        writeLock.lock();
+        try {
+            if (loaded) {
+                removeDocument(product.getId());
+                addDocument(product);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Remove a deleted product from the index
+     * @param id the deleted product ID
+     */
+    public void productDeleted(Long id) {
+        writeLock.lock();
+        try {
+            if (loaded) {
+                removeDocument(id);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Drop all indexed products so the next search rebuilds the index
+     */
+    public void invalidate() {
+        writeLock.lock();
+        try {
+            loaded = false;
+            documents.clear();
+            postings.clear();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void onProductChange(ProductChangeEvent event) {
+        switch (event.getType()) {
+            case SAVED -> productSaved(event.getProduct());
+            case DELETED -> productDeleted(event.getProductId());
+            case CATALOG_RELOADED -> invalidate();
+        }
+    }
+
+    /**
+     * Split text into lower-case alphanumeric terms
+     * @param text the text to tokenize
+     * @return list of terms, empty if the text has none
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> terms = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    private Map<Long, Integer> scoreTerm(String queryTerm) {
+        Map<Long, Integer> termScores = new HashMap<>();
+        NavigableMap<String, Map<Long, Integer>> matches =
+                postings.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, true);
+        for (Map.Entry<String, Map<Long, Integer>> match : matches.entrySet()) {
+            int multiplier = match.getKey().length() == queryTerm.length() ? EXACT_MATCH_BONUS : 1;
+            for (Map.Entry<Long, Integer> posting : match.getValue().entrySet()) {
+                termScores.merge(posting.getKey(), posting.getValue() * multiplier, Math::max);
+            }
+        }
+        return termScores;
+    }
+
+    private void ensureLoaded(Supplier<List<Product>> loader) {
+        if (loaded) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            if (!loaded) {
+                for (Product product : loader.get()) {
+                    addDocument(product);
+                }
+                loaded = true;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void addDocument(Product product) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String term : tokenize(product.getName())) {
+            weights.merge(term, NAME_WEIGHT, Integer::sum);
+        }
+        for (String term : tokenize(product.getDescription())) {
+            weights.merge(term, DESCRIPTION_WEIGHT, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), term -> new ConcurrentHashMap<>())
+                    .put(product.getId(), entry.getValue());
+        }
+        documents.put(product.getId(), new IndexedProduct(product, new HashSet<>(weights.keySet())));
+    }
+
+    private void removeDocument(Long id) {
+        IndexedProduct previous = documents.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous.terms) {
+            Map<Long, Integer> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(id);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static final class IndexedProduct {
+        private final Product product;
+        private final String lowerCaseName;
+        private final Set<String> terms;
+
+        private IndexedProduct(Product product, Set<String> terms) {
+            this.product = product;
+            this.lowerCaseName = product.getName().toLowerCase(Locale.ROOT);
+            this.terms = terms;
+        }
+    }
+
+    private record ScoredProduct(Product product, int score) {}
+}
@@ -1,22 +1,59 @@
 package com.grocerystore.service;
 
+import com.grocerystore.dto.ProductPage;
 import com.grocerystore.entity.Category;
 import com.grocerystore.entity.Product;
+import com.grocerystore.event.ProductChangeEvent;
+import com.grocerystore.event.ProductEventBus;
 import com.grocerystore.repository.ProductRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
+@Timed("grocerystore.service")
 public class ProductService {
 
     private final ProductRepository productRepository;
+    private final ProductCatalogCache catalogCache;
+    private final ProductSearchIndex searchIndex;
+    private final ProductSuggestionIndex suggestionIndex;
+    private final ProductEventBus eventBus;
+    private final InventoryLedger inventoryLedger;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Autowired
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, ProductCatalogCache catalogCache,
+                          ProductSearchIndex searchIndex, ProductSuggestionIndex suggestionIndex,
+                          ProductEventBus eventBus, InventoryLedger inventoryLedger,
+                          @Value("${grocerystore.catalog.page-size.default:50}") int defaultPageSize,
+                          @Value("${grocerystore.catalog.page-size.max:500}") int maxPageSize) {
         this.productRepository = productRepository;
+        this.catalogCache = catalogCache;
+        this.searchIndex = searchIndex;
+        this.suggestionIndex = suggestionIndex;
+        this.eventBus = eventBus;
+        this.inventoryLedger = inventoryLedger;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
     /**
@@ -24,16 +61,67 @@ public class ProductService {
      * @return list of all products
      */
     public List<Product> getAllProducts() {
-        return productRepository.findAllByOrderByNameAsc();
+        return catalogCache.getAllProducts(productRepository::findAllByOrderByNameAsc);
+    }
+
+    /**
+     * Get one page of products using keyset pagination on (name, id)
+     * @param category the category to filter by, or null for all products
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @param limit the page size, or null for the configured default
+     * @return the page with the cursor of the following page (null on the last page)
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public ProductPage getProductPage(Category category, String cursor, Integer limit) {
+        int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+        String afterName = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.indexOf(':');
+                afterId = Long.valueOf(decoded.substring(0, separator));
+                afterName = decoded.substring(separator + 1);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+
+        // Fetch one extra row to know whether another page follows
+        List<Product> products = catalogCache.getSnapshot(productRepository::findAllByOrderByNameAsc)
+                .getPage(category, afterName, afterId, pageSize + 1);
+        if (products.size() <= pageSize) {
+            return new ProductPage(products, null, pageSize);
+        }
+        List<Product> items = products.subList(0, pageSize);
+        Product last = items.get(pageSize - 1);
+        String nextCursor = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((last.getId() + ":" + last.getName()).getBytes(StandardCharsets.UTF_8));
+        return new ProductPage(items, nextCursor, pageSize);
+    }
+
+    /**
+     * Stream every product, ordered by name, straight from the database without materializing the catalog.
+     * Each product is detached once handed to the consumer, so the persistence context stays small.
+     * @param consumer receives the products one at a time
+     */
+    @Transactional(readOnly = true)
+    public void exportProducts(Consumer<Product> consumer) {
+        try (Stream<Product> products = productRepository.streamAllByOrderByNameAscIdAsc()) {
+            products.forEach(product -> {
+                consumer.accept(product);
+                entityManager.detach(product);
+            });
+        }
     }
 
     /**
-     * Get products by category
+     * Get products by category ordered by name
      * @param category the category to filter by
      * @return list of products in the specified category
      */
     public List<Product> getProductsByCategory(Category category) {
-        return productRepository.findByCategory(category);
+        return catalogCache.getProductsByCategory(category, productRepository::findAllByOrderByNameAsc);
     }
 
     /**
@@ -42,7 +130,16 @@ public class ProductService {
      * @return optional containing the product if found
      */
     public Optional<Product> getProductById(Long id) {
-        return productRepository.findById(id);
+        return catalogCache.getProductById(id, productRepository::findAllByOrderByNameAsc, productRepository::findById);
+    }
+
+    /**
+     * Get several products by ID in one lookup
+     * @param ids the product IDs
+     * @return the products found, by ID; IDs without a product are absent
+     */
+    public Map<Long, Product> getProductsByIds(Collection<Long> ids) {
+        return catalogCache.getProductsByIds(ids, productRepository::findAllByOrderByNameAsc, productRepository::findAllById);
     }
 
     /**
@@ -51,11 +148,33 @@ public class ProductService {
      * @return the created product
      */
     public Product createProduct(Product product) {
-        return productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        eventBus.publish(ProductChangeEvent.saved(savedProduct, false));
+        return savedProduct;
+    }
+
+    /**
+     * Add units to (or remove units from) a product's stock; the first adjustment starts tracking its stock
+     * @param id the product ID
+     * @param delta units to add, negative to remove
+     * @return the units now available
+     * @throws IllegalArgumentException if the product does not exist
+     */
+    public long adjustStock(Long id, int delta) {
+        return inventoryLedger.adjust(id, delta);
     }
 
     /**
-     * Update an existing product
+     * Get the units of a product available for sale right now
+     * @param id the product ID
+     * @return optional containing the available units, empty if the product's stock is not tracked
+     */
+    public Optional<Long> getAvailableStock(Long id) {
+        return Optional.ofNullable(inventoryLedger.getAvailable(id));
+    }
+
+    /**
+     * Update an existing product. Stock is not updated here; use adjustStock
      * @param id the product ID
      * @param productDetails the updated product details
      * @return the updated product if found, null otherwise
@@ -63,12 +182,16 @@ public class ProductService {
     public Product updateProduct(Long id, Product productDetails) {
         return productRepository.findById(id)
                 .map(product -> {
+                    BigDecimal previousPrice = product.getPrice();
                     product.setName(productDetails.getName());
                     product.setCategory(productDetails.getCategory());
                     product.setPrice(productDetails.getPrice());
                     product.setImageUrl(productDetails.getImageUrl());
                     product.setDescription(productDetails.getDescription());
-                    return productRepository.save(product);
+                    Product savedProduct = productRepository.save(product);
+                    boolean priceChanged = previousPrice.compareTo(savedProduct.getPrice()) != 0;
+                    eventBus.publish(ProductChangeEvent.saved(savedProduct, priceChanged));
+                    return savedProduct;
                 })
                 .orElse(null);
     }
@@ -81,17 +204,52 @@ public class ProductService {
     public boolean deleteProduct(Long id) {
         if (productRepository.existsById(id)) {
             productRepository.deleteById(id);
+            eventBus.publish(ProductChangeEvent.deleted(id));
             return true;
         }
         return false;
     }
 
     /**
-     * Search products by name
+     * Search products by name and description
      * @param name the search term
-     * @return list of products matching the search
+     * @return list of products matching the search, best match first
      */
     public List<Product> searchProductsByName(String name) {
-        return productRepository.findByNameContainingIgnoreCase(name);
+        // Built from the cached catalog, so a rebuild after a reload does not query the database again
+        return searchIndex.search(name, this::getAllProducts);
+    }
+
+    /**
+     * Suggest product names for typeahead
+     * @param prefix the typed prefix
+     * @param limit maximum number of suggestions
+     * @return product names matching the prefix, best suggestion first
+     */
+    public List<String> suggestProductNames(String prefix, int limit) {
+        return suggestionIndex.suggest(prefix, limit, this::getAllProducts);
+    }
+
+    /**
+     * Discard cached catalog data after products were written outside this service
+     */
+    public void refreshCatalog() {
+        eventBus.publish(ProductChangeEvent.catalogReloaded());
+    }
+
+    /**
+     * Get catalog cache statistics
+     * @return hit/miss counters for the catalog cache
+     */
+    public Map<String, Object> getCacheStats() {
+        return catalogCache.getStats();
+    }
+
+    /**
+     * Get inventory ledger statistics
+     * @return tracked products, rejected reservations and reconciliation corrections
+     */
+    public Map<String, Object> getInventoryStats() {
+        return inventoryLedger.getStats();
     }
 } 
\ No newline at end of file
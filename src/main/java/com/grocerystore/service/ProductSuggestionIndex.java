@@ -0,0 +1,399 @@
+package com.grocerystore.service;
+
+import com.grocerystore.entity.Product;
+import com.grocerystore.event.ProductChangeEvent;
+import com.grocerystore.event.ProductChangeListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Radix trie of product names for typeahead suggestions.
+ * Every word start of a name is a key, so "app" suggests "Fresh Apples". Chains of single-child nodes are
+ * collapsed into one edge labelled with the whole run of characters, so a key adds at most two nodes.
+ * Each node keeps its precomputed top-N names, so a lookup is a walk down the prefix and an array copy;
+ * writes recompute the top-N only along the changed paths.
+ */
+@Component
+@Order(ProductChangeListener.CATALOG_ORDER)
+public class ProductSuggestionIndex implements ProductChangeListener {
+
+    private static final Suggestion[] NO_SUGGESTIONS = new Suggestion[0];
+
+    /** Names that start with the prefix rank before names where only a later word matches */
+    private static final Comparator<Suggestion> RANKING = Comparator.comparingInt(Suggestion::rank)
+            .thenComparing(Suggestion::name, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(Suggestion::name);
+
+    private final int maxSuggestions;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, String> namesById = new HashMap<>();
+    private Node root = new Node();
+    private volatile boolean loaded;
+
+    public ProductSuggestionIndex(@Value("${grocerystore.catalog.suggest.max-results:10}") int maxSuggestions) {
+        this.maxSuggestions = maxSuggestions;
+    }
+
+    /**
+     * Suggest product names for a prefix
+     * @param prefix the typed prefix
+     * @param limit maximum number of names to return (capped at the configured maximum)
+     * @param loader loads all products on first use
+     * @return product names, best suggestion first
+     */
+    public List<String> suggest(String prefix, int limit, Supplier<List<Product>> loader) {
+        ensureLoaded(loader);
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            // The prefix may end inside an edge: every name below that edge still starts with it
+            Node node = root;
+            int matched = 0;
+            while (matched < key.length()) {
+                Node child = node.child(key.charAt(matched));
+                if (child == null) {
+                    return Collections.emptyList();
+                }
+                int length = Math.min(child.label.length(), key.length() - matched);
+                if (!key.regionMatches(matched, child.label, 0, length)) {
+                    return Collections.emptyList();
+                }
+                matched += length;
+                node = child;
+            }
+            Suggestion[] top = node.top;
+            int size = Math.min(Math.min(limit, maxSuggestions), top.length);
+            List<String> names = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                names.add(top[i].name());
+            }
+            return names;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Re-index a created or updated product if its name changed
+     * @param product the saved product
+     */
+    public void productSaved(Product product) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            String previousName = namesById.get(product.getId());
+            if (product.getName().equals(previousName)) {
+                return;
+            }
+            if (previousName != null) {
+                removeName(previousName, true);
+            }
+            namesById.put(product.getId(), product.getName());
+            addName(product.getName(), true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a deleted product's name
+     * @param id the deleted product ID
+     */
+    public void productDeleted(Long id) {
+        lock.writeLock().lock();
+        try {
+            String previousName = loaded ? namesById.remove(id) : null;
+            if (previousName != null) {
+                removeName(previousName, true);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drop the trie so the next lookup rebuilds it
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+            namesById.clear();
+            root = new Node();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onProductChange(ProductChangeEvent event) {
+        switch (event.getType()) {
+            case SAVED -> productSaved(event.getProduct());
+            case DELETED -> productDeleted(event.getProductId());
+            case CATALOG_RELOADED -> invalidate();
+        }
+    }
+
+    private void ensureLoaded(Supplier<List<Product>> loader) {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                for (Product product : loader.get()) {
+                    namesById.put(product.getId(), product.getName());
+                    addName(product.getName(), false);
+                }
+                recompute(root);
+                loaded = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addName(String name, boolean updateRankings) {
+        String lowerCaseName = normalize(name);
+        for (int start : wordStarts(lowerCaseName)) {
+            List<Node> path = new ArrayList<>();
+            Node node = root;
+            path.add(node);
+            int position = start;
+            while (position < lowerCaseName.length()) {
+                Node child = node.child(lowerCaseName.charAt(position));
+                if (child == null) {
+                    child = node.addChild(new Node(lowerCaseName.substring(position)));
+                    position = lowerCaseName.length();
+                } else {
+                    int common = commonPrefixLength(child.label, lowerCaseName, position);
+                    if (common < child.label.length()) {
+                        // The key leaves the edge part way: split it where they diverge
+                        child = node.split(child, common);
+                    }
+                    position += common;
+                }
+                node = child;
+                path.add(node);
+            }
+            node.addTerminal(new Suggestion(name, start == 0 ? 0 : 1));
+            if (updateRankings) {
+                for (int i = path.size() - 1; i >= 0; i--) {
+                    recomputeNode(path.get(i));
+                }
+            }
+        }
+    }
+
+    private void removeName(String name, boolean updateRankings) {
+        String lowerCaseName = normalize(name);
+        for (int start : wordStarts(lowerCaseName)) {
+            List<Node> path = new ArrayList<>();
+            Node node = root;
+            path.add(node);
+            int position = start;
+            while (node != null && position < lowerCaseName.length()) {
+                node = node.child(lowerCaseName.charAt(position));
+                if (node != null && !lowerCaseName.startsWith(node.label, position)) {
+                    node = null;
+                }
+                if (node != null) {
+                    position += node.label.length();
+                    path.add(node);
+                }
+            }
+            if (node == null) {
+                continue;
+            }
+            node.removeTerminal(new Suggestion(name, start == 0 ? 0 : 1));
+            // Prune empty branches and re-collapse single-child chains bottom-up, then refresh rankings
+            for (int i = path.size() - 1; i >= 1; i--) {
+                Node current = path.get(i);
+                if (current.isEmpty()) {
+                    path.get(i - 1).removeChild(current.label.charAt(0));
+                    path.set(i, null);
+                } else if (current.terminals == null && current.childCount == 1) {
+                    if (i + 1 < path.size() && current.children[0] == path.get(i + 1)) {
+                        path.set(i + 1, null);
+                    }
+                    current.absorbOnlyChild();
+                }
+            }
+            if (updateRankings) {
+                for (int i = path.size() - 1; i >= 0; i--) {
+                    if (path.get(i) != null) {
+                        recomputeNode(path.get(i));
+                    }
+                }
+            }
+        }
+    }
+
+    private void recompute(Node node) {
+        for (int i = 0; i < node.childCount; i++) {
+            recompute(node.children[i]);
+        }
+        recomputeNode(node);
+    }
+
+    private void recomputeNode(Node node) {
+        // Children's lists are already top-N of their subtrees, so merging them yields this node's top-N
+        Map<String, Suggestion> best = new LinkedHashMap<>();
+        if (node.terminals != null) {
+            node.terminals.keySet().forEach(suggestion -> best.merge(suggestion.name(), suggestion, this::better));
+        }
+        for (int i = 0; i < node.childCount; i++) {
+            for (Suggestion suggestion : node.children[i].top) {
+                best.merge(suggestion.name(), suggestion, this::better);
+            }
+        }
+        Suggestion[] merged = best.values().toArray(NO_SUGGESTIONS);
+        Arrays.sort(merged, RANKING);
+        node.top = merged.length > maxSuggestions ? Arrays.copyOf(merged, maxSuggestions) : merged;
+    }
+
+    private Suggestion better(Suggestion a, Suggestion b) {
+        return RANKING.compare(a, b) <= 0 ? a : b;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static int commonPrefixLength(String label, String text, int offset) {
+        int length = Math.min(label.length(), text.length() - offset);
+        int common = 0;
+        while (common < length && label.charAt(common) == text.charAt(offset + common)) {
+            common++;
+        }
+        return common;
+    }
+
+    private static List<Integer> wordStarts(String text) {
+        List<Integer> starts = new ArrayList<>();
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isLetterOrDigit(text.charAt(i))
+                    && (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)))) {
+                starts.add(i);
+            }
+        }
+        return starts;
+    }
+
+    private record Suggestion(String name, int rank) {}
+
+    /**
+     * Radix trie node: the label of the edge leading to it, and its children in parallel arrays sorted by the first
+     * character of their labels, which no two children share
+     */
+    private static final class Node {
+        private String label;
+        private char[] firsts = new char[0];
+        private Node[] children = new Node[0];
+        private int childCount;
+        // Names ending at this node, with a reference count for duplicate names
+        private Map<Suggestion, Integer> terminals;
+        private Suggestion[] top = NO_SUGGESTIONS;
+
+        Node() {
+            this("");
+        }
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Node child(char first) {
+            int index = Arrays.binarySearch(firsts, 0, childCount, first);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node addChild(Node node) {
+            char first = node.label.charAt(0);
+            int insertAt = -Arrays.binarySearch(firsts, 0, childCount, first) - 1;
+            if (childCount == firsts.length) {
+                int capacity = Math.max(2, childCount * 2);
+                firsts = Arrays.copyOf(firsts, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(firsts, insertAt, firsts, insertAt + 1, childCount - insertAt);
+            System.arraycopy(children, insertAt, children, insertAt + 1, childCount - insertAt);
+            firsts[insertAt] = first;
+            children[insertAt] = node;
+            childCount++;
+            return node;
+        }
+
+        /** Put a node on the edge to a child, after the first length characters of its label */
+        Node split(Node child, int length) {
+            Node middle = new Node(child.label.substring(0, length));
+            child.label = child.label.substring(length);
+            middle.addChild(child);
+            middle.top = child.top;
+            children[Arrays.binarySearch(firsts, 0, childCount, middle.label.charAt(0))] = middle;
+            return middle;
+        }
+
+        /** Merge the only child into this node, so the chain becomes one edge */
+        void absorbOnlyChild() {
+            Node child = children[0];
+            label = label + child.label;
+            firsts = child.firsts;
+            children = child.children;
+            childCount = child.childCount;
+            terminals = child.terminals;
+            top = child.top;
+        }
+
+        void removeChild(char first) {
+            int index = Arrays.binarySearch(firsts, 0, childCount, first);
+            if (index < 0) {
+                return;
+            }
+            System.arraycopy(firsts, index + 1, firsts, index, childCount - index - 1);
+            System.arraycopy(children, index + 1, children, index, childCount - index - 1);
+            childCount--;
+            children[childCount] = null;
+        }
+
+        void addTerminal(Suggestion suggestion) {
+            if (terminals == null) {
+                terminals = new HashMap<>(2);
+            }
+            terminals.merge(suggestion, 1, Integer::sum);
+        }
+
+        void removeTerminal(Suggestion suggestion) {
+            if (terminals != null) {
+                terminals.computeIfPresent(suggestion, (key, count) -> count > 1 ? count - 1 : null);
+                if (terminals.isEmpty()) {
+                    terminals = null;
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return childCount == 0 && terminals == null;
+        }
+    }
+}
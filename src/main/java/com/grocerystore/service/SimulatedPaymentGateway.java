@@ -0,0 +1,72 @@
+package com.grocerystore.service;
+
+import com.grocerystore.entity.Order;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+/**
+ * Local stand-in for a real payment gateway.
+ * The configurable latency mimics the gateway round trip so checkout throughput can be measured.
+ */
+@Component
+public class SimulatedPaymentGateway implements PaymentGateway {
+
+    private final long latencyMillis;
+
+    public SimulatedPaymentGateway(@Value("${grocerystore.payment.simulated-latency-ms:0}") long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public boolean authorize(Order.PaymentMethod paymentMethod, BigDecimal amount, String transactionId) {
+        simulateLatency();
+
+        switch (paymentMethod) {
+            case CREDIT_CARD:
+            case DEBIT_CARD:
+                // Simulate credit/debit card processing
+                return simulateCardPayment();
+            
+            case PAYPAL:
+                // Simulate PayPal processing
+                return simulatePayPalPayment();
+            
+            case CASH_ON_DELIVERY:
+                // Cash on delivery - always succeeds
+                return true;
+            
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public void voidAuthorization(String transactionId) {
+        // Nothing is held by the simulated authorizations; a real gateway releases the hold on the card here
+        simulateLatency();
+    }
+
+    private void simulateLatency() {
+        if (latencyMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean simulateCardPayment() {
+        // For demo: 95% success rate
+        // In real app, this would call Stripe, Square, etc.
+        return Math.random() > 0.05; // 95% success rate
+    }
+
+    private boolean simulatePayPalPayment() {
+        // For demo: 98% success rate
+        return Math.random() > 0.02; // 98% success rate
+    }
+}
@@ -0,0 +1,59 @@
+package com.grocerystore.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Cancels orders whose payment outcome was never recorded, so their reserved stock does not stay held.
+ * A checkout leaves its order PENDING only for the payment timeout; an order still PENDING well after
+ * that lost its payment callback (a rejected or failed completion, or a restart while payment was in flight).
+ * Its payment may have been authorized all the same, so the authorization is voided with the cancellation.
+ */
+@Component
+public class StaleOrderSweepJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(StaleOrderSweepJob.class);
+
+    private final OrderService orderService;
+    private final Duration staleAfter;
+    private final int batchSize;
+
+    @Autowired
+    public StaleOrderSweepJob(OrderService orderService,
+                              @Value("${grocerystore.payment.timeout-ms:10000}") long paymentTimeoutMillis,
+                              @Value("${grocerystore.order.stale-pending.after:5m}") Duration staleAfter,
+                              @Value("${grocerystore.order.stale-pending.batch-size:100}") int batchSize) {
+        if (staleAfter.toMillis() <= paymentTimeoutMillis || batchSize <= 0) {
+            throw new IllegalArgumentException(
+                    "Stale order age must exceed the payment timeout and the batch size must be positive");
+        }
+        this.orderService = orderService;
+        this.staleAfter = staleAfter;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Cancel PENDING orders placed more than staleAfter ago and void their payments, until none are left
+     */
+    @Scheduled(initialDelayString = "${grocerystore.order.stale-pending.interval-ms:60000}",
+            fixedDelayString = "${grocerystore.order.stale-pending.interval-ms:60000}")
+    public void sweep() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(staleAfter);
+        int total = 0;
+        int cancelled;
+        do {
+            cancelled = orderService.cancelStalePendingOrders(cutoff, batchSize);
+            total += cancelled;
+        } while (cancelled == batchSize);
+        if (total > 0) {
+            logger.warn("Cancelled {} orders left PENDING since before {}", total, cutoff);
+        }
+    }
+}
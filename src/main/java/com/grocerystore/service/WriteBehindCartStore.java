@@ -0,0 +1,811 @@
+package com.grocerystore.service;
+
+import com.grocerystore.dto.CartResponse;
+import com.grocerystore.entity.CartItem;
+import com.grocerystore.entity.Product;
+import com.grocerystore.repository.CartRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cart store that keeps live carts in memory and writes changes behind to cart_items.
+ * Each user's cart is guarded by one of a fixed set of striped locks, so updates to one cart are serialized
+ * without a lock per user. New lines are inserted immediately to obtain their IDs; quantity changes and
+ * removals are buffered and flushed in batches every flush interval, which bounds how stale the table can be.
+ * Carts with no pending writes are evicted after they have been idle for a while and reloaded on next use; a cart is
+ * read from the database before its stripe is locked, so a load does not hold up the other carts on the stripe.
+ * Changes made inside a transaction are visible at once but are not written behind until it completes.
+ * New lines are inserted on the transaction's own connection. If it rolls back, only its own changes are undone:
+ * the quantities it added or set are taken back out of each line, so changes that other transactions made to the
+ * same cart in the meantime are kept, and lines whose rows it inserted are written again if anything else remains.
+ */
+@Component
+@ConditionalOnProperty(name = "grocerystore.cart.store", havingValue = "write-behind")
+public class WriteBehindCartStore implements CartStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindCartStore.class);
+
+    private static final Comparator<CartItem> BY_ID = Comparator.comparing(CartItem::getId);
+
+    private final CartRepository cartRepository;
+    private final ProductService productService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long idleEvictionNanos;
+
+    private final ReentrantLock[] stripes;
+    // Carts evicted or purged per stripe; a cart read before one of them is read again rather than installed
+    private final AtomicLongArray stripeEvictions;
+    // Signalled on a stripe when a purge of some of its users has committed
+    private final Condition[] purged;
+    // Users whose rows a purge is deleting; no cart is loaded for them until it commits
+    private final Set<String> purging = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Map<String, UserCart> carts = new ConcurrentHashMap<>();
+    private final Map<Long, String> itemOwners = new ConcurrentHashMap<>();
+    private final Set<String> dirtyUsers = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public WriteBehindCartStore(CartRepository cartRepository,
+                                ProductService productService,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${grocerystore.cart.write-behind.lock-stripes:64}") int lockStripes,
+                                @Value("${grocerystore.cart.write-behind.batch-size:500}") int batchSize,
+                                @Value("${grocerystore.cart.write-behind.idle-eviction-ms:1800000}") long idleEvictionMs) {
+        if (lockStripes <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Write-behind lock stripes and batch size must be positive");
+        }
+        this.cartRepository = cartRepository;
+        this.productService = productService;
+        // Flushes and inserts made outside a request transaction commit on their own
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = batchSize;
+        this.idleEvictionNanos = TimeUnit.MILLISECONDS.toNanos(idleEvictionMs);
+        this.stripes = new ReentrantLock[lockStripes];
+        this.purged = new Condition[lockStripes];
+        for (int i = 0; i < lockStripes; i++) {
+            stripes[i] = new ReentrantLock();
+            purged[i] = stripes[i].newCondition();
+        }
+        this.stripeEvictions = new AtomicLongArray(lockStripes);
+    }
+
+    @Override
+    public List<CartItem> findByUserIdWithProducts(String userId) {
+        List<CartItem> items = new ArrayList<>();
+        ReentrantLock lock = lockFor(userId);
+        UserCart cart = lockCart(userId);
+        try {
+            for (CartItem line : cart.lines.values()) {
+                items.add(copyOf(line));
+            }
+        } finally {
+            lock.unlock();
+        }
+        items.sort(BY_ID);
+
+        // Products come from the catalog snapshot, so prices are current; lines for deleted products
+        // are skipped just like the inner join in CartRepository.findByUserIdWithProducts
+        List<CartItem> withProducts = new ArrayList<>(items.size());
+        for (CartItem item : items) {
+            Optional<Product> product = productService.getProductById(item.getProductId());
+            if (product.isPresent()) {
+                item.setProduct(product.get());
+                withProducts.add(item);
+            }
+        }
+        return withProducts;
+    }
+
+    @Override
+    public List<CartResponse.CartItemResponse> findItemResponsesByUserId(String userId) {
+        // Lines are already in memory, so build the responses from the copies with catalog products attached
+        List<CartItem> items = findByUserIdWithProducts(userId);
+        List<CartResponse.CartItemResponse> responses = new ArrayList<>(items.size());
+        for (CartItem item : items) {
+            responses.add(new CartResponse.CartItemResponse(item));
+        }
+        return responses;
+    }
+
+    @Override
+    public Optional<CartItem> findById(Long itemId) {
+        String userId = itemOwners.get(itemId);
+        if (userId == null) {
+            // Not cached yet: find the owner and load their whole cart
+            Optional<CartItem> stored = cartRepository.findById(itemId);
+            if (stored.isEmpty()) {
+                return Optional.empty();
+            }
+            userId = stored.get().getUserId();
+        }
+        ReentrantLock lock = lockFor(userId);
+        UserCart cart = lockCart(userId);
+        try {
+            return Optional.ofNullable(cart.findLine(itemId)).map(this::copyOf);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<CartItem> findByUserIdAndProductId(String userId, Long productId) {
+        ReentrantLock lock = lockFor(userId);
+        UserCart cart = lockCart(userId);
+        try {
+            return Optional.ofNullable(cart.lines.get(productId)).map(this::copyOf);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public CartItem addQuantity(String userId, Long productId, Integer quantity) {
+        ReentrantLock lock = lockFor(userId);
+        UserCart cart = lockCart(userId);
+        try {
+            TransactionChanges changes = beforeChange(userId, cart, productId);
+            CartItem line = cart.lines.get(productId);
+            if (line != null) {
+                if (changes != null || cart.parts.containsKey(productId)) {
+                    partsOf(cart, line).add(new Part(changes, quantity, null));
+                }
+                line.setQuantity(line.getQuantity() + quantity);
+                markDirty(cart, productId);
+                return copyOf(line);
+            }
+
+            CartItem removed = cart.removed.remove(productId);
+            if (removed != null) {
+                // Row is still in the table with a pending delete: reuse it instead of inserting a duplicate
+                line = copyOf(removed);
+                line.setQuantity(quantity);
+                cart.lines.put(productId, line);
+                if (changes != null) {
+                    cart.parts.put(productId, new ArrayList<>(List.of(new Part(changes, quantity, null))));
+                }
+                itemOwners.put(line.getId(), userId);
+                markDirty(cart, productId);
+                return copyOf(line);
+            }
+
+            CartItem row = new CartItem(productId, userId, quantity);
+            // Inside a transaction the insert joins it, so no second connection is taken while the stripe is locked
+            boolean joined = changes != null && TransactionSynchronizationManager.isActualTransactionActive();
+            CartItem saved = joined ? cartRepository.save(row)
+                    : transactionTemplate.execute(status -> cartRepository.save(row));
+            line = new CartItem(productId, userId, quantity);
+            line.setId(saved.getId());
+            cart.lines.put(productId, line);
+            if (changes != null) {
+                cart.parts.put(productId, new ArrayList<>(List.of(new Part(changes, quantity, null))));
+                if (joined) {
+                    changes.of(userId).inserted.add(copyOf(line));
+                }
+            }
+            itemOwners.put(line.getId(), userId);
+            return copyOf(line);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<QuantityChange> updateQuantity(Long itemId, Integer quantity) {
+        Optional<CartItem> item = findById(itemId);
+        if (item.isEmpty()) {
+            return Optional.empty();
+        }
+        String userId = item.get().getUserId();
+        ReentrantLock lock = lockFor(userId);
+        UserCart cart = lockCart(userId);
+        try {
+            CartItem line = cart.findLine(itemId);
+            if (line == null) {
+                return Optional.empty();
+            }
+            TransactionChanges changes = beforeChange(userId, cart, line.getProductId());
+            if (changes == null) {
+                // A committed quantity replaces whatever open transactions added before it
+                cart.parts.remove(line.getProductId());
+            } else {
+                List<Part> replaced = partsOf(cart, line);
+                cart.parts.put(line.getProductId(), new ArrayList<>(List.of(new Part(changes, quantity, replaced))));
+            }
+            int previous = line.getQuantity();
+            line.setQuantity(quantity);
+            markDirty(cart, line.getProductId());
+            return Optional.of(new QuantityChange(copyOf(line), previous));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Integer> deleteById(Long itemId) {
+        Optional<CartItem> item = findById(itemId);
+        if (item.isEmpty()) {
+            return Optional.empty();
+        }
+        String userId = item.get().getUserId();
+        ReentrantLock lock = lockFor(userId);
+        UserCart cart = lockCart(userId);
+        try {
+            CartItem line = cart.findLine(itemId);
+            if (line == null) {
+                return Optional.empty();
+            }
+            TransactionChanges changes = beforeChange(userId, cart, line.getProductId());
+            removeLine(cart, line, changes);
+            return Optional.of(line.getQuantity());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Map<Long, Integer> deleteByUserId(String userId) {
+        ReentrantLock lock = lockFor(userId);
+        UserCart cart = lockCart(userId);
+        try {
+            Map<Long, Integer> deleted = new HashMap<>();
+            for (CartItem line : new ArrayList<>(cart.lines.values())) {
+                deleted.put(line.getProductId(), line.getQuantity());
+                removeLine(cart, line, beforeChange(userId, cart, line.getProductId()));
+            }
+            return deleted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Carts held in memory are in use and are kept. The remaining users are marked as being purged under their stripe
+     * locks, and deleted in one transaction with no stripe locked. Until the delete commits, no cart is loaded for a
+     * marked user: a request for one waits for the purge, while the other carts on its stripe stay available.
+     */
+    @Override
+    public int deleteAbandoned(Collection<String> userIds, LocalDateTime cutoff) {
+        Map<Integer, List<String>> usersByStripe = new HashMap<>();
+        for (String userId : userIds) {
+            usersByStripe.computeIfAbsent(stripeIndex(userId), index -> new ArrayList<>()).add(userId);
+        }
+        List<String> idle = new ArrayList<>(userIds.size());
+        Map<Integer, List<String>> idleByStripe = new HashMap<>();
+        for (Map.Entry<Integer, List<String>> stripe : usersByStripe.entrySet()) {
+            ReentrantLock lock = stripes[stripe.getKey()];
+            lock.lock();
+            try {
+                for (String userId : stripe.getValue()) {
+                    if (!carts.containsKey(userId) && purging.add(userId)) {
+                        idle.add(userId);
+                        idleByStripe.computeIfAbsent(stripe.getKey(), index -> new ArrayList<>()).add(userId);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (idle.isEmpty()) {
+            return 0;
+        }
+        try {
+            Integer rows = transactionTemplate.execute(status -> cartRepository.deleteAbandoned(idle, cutoff));
+            return rows == null ? 0 : rows;
+        } finally {
+            for (Map.Entry<Integer, List<String>> stripe : idleByStripe.entrySet()) {
+                ReentrantLock lock = stripes[stripe.getKey()];
+                lock.lock();
+                try {
+                    stripe.getValue().forEach(purging::remove);
+                    // Carts read from these rows before the delete are read again
+                    stripeEvictions.incrementAndGet(stripe.getKey());
+                    purged[stripe.getKey()].signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Write buffered quantity changes and removals to the database, then evict idle carts
+     */
+    @Scheduled(fixedDelayString = "${grocerystore.cart.write-behind.flush-interval-ms:500}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<CartItem> inserts = new ArrayList<>();
+            List<CartItem> updates = new ArrayList<>();
+            List<CartItem> deletes = new ArrayList<>();
+            for (String userId : new ArrayList<>(dirtyUsers)) {
+                dirtyUsers.remove(userId);
+                drain(userId, inserts, updates, deletes);
+                if (inserts.size() + updates.size() + deletes.size() >= batchSize) {
+                    write(inserts, updates, deletes);
+                    inserts = new ArrayList<>();
+                    updates = new ArrayList<>();
+                    deletes = new ArrayList<>();
+                }
+            }
+            if (!inserts.isEmpty() || !updates.isEmpty() || !deletes.isEmpty()) {
+                write(inserts, updates, deletes);
+            }
+            evictIdleCarts();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Flush everything still buffered before the application context closes
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void drain(String userId, List<CartItem> inserts, List<CartItem> updates, List<CartItem> deletes) {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try {
+            UserCart cart = carts.get(userId);
+            if (cart == null) {
+                return;
+            }
+            if (cart.openTransactions > 0) {
+                // Written once the transactions changing it complete
+                dirtyUsers.add(userId);
+                return;
+            }
+            for (Long productId : cart.unsaved) {
+                inserts.add(copyOf(cart.lines.get(productId)));
+            }
+            for (Long productId : cart.dirty) {
+                CartItem line = cart.lines.get(productId);
+                if (line != null && !cart.unsaved.contains(productId)) {
+                    updates.add(copyOf(line));
+                }
+            }
+            cart.unsaved.clear();
+            cart.dirty.clear();
+            for (CartItem removed : cart.removed.values()) {
+                deletes.add(copyOf(removed));
+            }
+            cart.removed.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(List<CartItem> inserts, List<CartItem> updates, List<CartItem> deletes) {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            transactionTemplate.executeWithoutResult(status -> cartRepository.writeBatch(inserts, updates, deletes, now));
+            logger.debug("Flushed {} cart inserts, {} updates and {} deletes", inserts.size(), updates.size(), deletes.size());
+        } catch (RuntimeException e) {
+            logger.warn("Cart write-behind flush failed, will retry: {}", e.getMessage());
+            requeue(inserts, updates, deletes);
+        }
+    }
+
+    private void requeue(List<CartItem> inserts, List<CartItem> updates, List<CartItem> deletes) {
+        for (CartItem insert : inserts) {
+            ReentrantLock lock = lockFor(insert.getUserId());
+            lock.lock();
+            try {
+                UserCart cart = carts.get(insert.getUserId());
+                CartItem line = cart == null ? null : cart.lines.get(insert.getProductId());
+                if (line != null && line.getId().equals(insert.getId())) {
+                    cart.unsaved.add(insert.getProductId());
+                    dirtyUsers.add(insert.getUserId());
+                } else if (cart != null && cart.removed.containsKey(insert.getProductId())
+                        && cart.removed.get(insert.getProductId()).getId().equals(insert.getId())) {
+                    // Removed before its row was written again, so there is nothing to delete
+                    cart.removed.remove(insert.getProductId());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        for (CartItem update : updates) {
+            ReentrantLock lock = lockFor(update.getUserId());
+            lock.lock();
+            try {
+                UserCart cart = carts.get(update.getUserId());
+                if (cart != null && cart.lines.containsKey(update.getProductId())) {
+                    markDirty(cart, update.getProductId());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        for (CartItem delete : deletes) {
+            ReentrantLock lock = lockFor(delete.getUserId());
+            lock.lock();
+            try {
+                UserCart cart = carts.get(delete.getUserId());
+                if (cart != null && !cart.lines.containsKey(delete.getProductId())) {
+                    cart.removed.put(delete.getProductId(), delete);
+                    dirtyUsers.add(delete.getUserId());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void evictIdleCarts() {
+        long now = System.nanoTime();
+        for (Map.Entry<String, UserCart> entry : carts.entrySet()) {
+            if (now - entry.getValue().lastAccess < idleEvictionNanos) {
+                continue;
+            }
+            String userId = entry.getKey();
+            ReentrantLock lock = lockFor(userId);
+            lock.lock();
+            try {
+                UserCart cart = carts.get(userId);
+                if (cart != null && cart.isClean() && now - cart.lastAccess >= idleEvictionNanos) {
+                    carts.remove(userId);
+                    stripeEvictions.incrementAndGet(stripeIndex(userId));
+                    cart.lines.values().forEach(line -> itemOwners.remove(line.getId()));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Lock the user's stripe and get their cart. A cart that is not in memory is read before the stripe is locked and
+     * installed under it, unless a cart of the stripe was evicted or purged since the read, which may have written or
+     * deleted its rows; then it is read again. A cart whose rows are being purged is not installed before the purge
+     * commits.
+     * @return the cart, with the user's stripe lock held
+     */
+    private UserCart lockCart(String userId) {
+        ReentrantLock lock = lockFor(userId);
+        int stripe = stripeIndex(userId);
+        while (true) {
+            long evictions = stripeEvictions.get(stripe);
+            UserCart loaded = carts.containsKey(userId) ? null : load(userId);
+            lock.lock();
+            while (purging.contains(userId)) {
+                purged[stripe].awaitUninterruptibly();
+            }
+            UserCart cart = carts.get(userId);
+            if (cart == null && loaded != null && stripeEvictions.get(stripe) == evictions) {
+                cart = loaded;
+                carts.putIfAbsent(userId, cart);
+                cart.lines.values().forEach(line -> itemOwners.put(line.getId(), userId));
+            }
+            if (cart != null) {
+                cart.lastAccess = System.nanoTime();
+                return cart;
+            }
+            lock.unlock();
+        }
+    }
+
+    private UserCart load(String userId) {
+        UserCart cart = new UserCart();
+        for (CartItem stored : cartRepository.findByUserId(userId)) {
+            CartItem line = new CartItem(stored.getProductId(), userId, stored.getQuantity());
+            line.setId(stored.getId());
+            cart.lines.put(line.getProductId(), line);
+        }
+        return cart;
+    }
+
+    /**
+     * Must be called with the user's stripe lock held, before a line of the cart is changed. Inside a transaction,
+     * records that the transaction changed the line and holds the cart back from write-behind until completion.
+     * @return the changes of the current transaction, or null outside a transaction
+     */
+    private TransactionChanges beforeChange(String userId, UserCart cart, Long productId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        TransactionChanges changes = null;
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof TransactionChanges registered && registered.store() == this) {
+                changes = registered;
+            }
+        }
+        if (changes == null) {
+            changes = new TransactionChanges();
+            TransactionSynchronizationManager.registerSynchronization(changes);
+        }
+        if (!changes.users.containsKey(userId)) {
+            cart.openTransactions++;
+        }
+        changes.of(userId).products.add(productId);
+        return changes;
+    }
+
+    /**
+     * Must be called with the user's stripe lock held. Takes the changes of a completed transaction out of the
+     * cart's lines: committed quantities become plain quantities, rolled back ones are removed. A line whose
+     * quantity came only from a rolled back transaction is removed; a line whose row it inserted is written again.
+     */
+    private void settle(String userId, UserCart cart, UserChanges userChanges, boolean rolledBack) {
+        for (Long productId : userChanges.products) {
+            List<Part> parts = cart.parts.get(productId);
+            CartItem line = cart.lines.get(productId);
+            if (parts == null || line == null) {
+                continue;
+            }
+            List<Part> resolved = resolve(parts);
+            int quantity = sum(resolved);
+            if (quantity == 0) {
+                cart.parts.remove(productId);
+                removeLine(cart, line, null);
+                continue;
+            }
+            keepParts(cart, productId, resolved);
+            if (line.getQuantity() != quantity) {
+                line.setQuantity(quantity);
+                markDirty(cart, productId);
+            }
+        }
+        if (!rolledBack) {
+            return;
+        }
+        // Lines the transaction removed come back with whatever quantity other transactions had in them
+        for (int i = userChanges.removals.size() - 1; i >= 0; i--) {
+            Removal removal = userChanges.removals.get(i);
+            Long productId = removal.line().getProductId();
+            CartItem pending = cart.removed.get(productId);
+            if (cart.lines.containsKey(productId) || pending == null || !pending.getId().equals(removal.line().getId())) {
+                continue;
+            }
+            List<Part> resolved = resolve(removal.parts());
+            int quantity = sum(resolved);
+            if (quantity > 0) {
+                CartItem line = copyOf(removal.line());
+                line.setQuantity(quantity);
+                cart.removed.remove(productId);
+                cart.lines.put(productId, line);
+                keepParts(cart, productId, resolved);
+                itemOwners.put(line.getId(), userId);
+                markDirty(cart, productId);
+            }
+        }
+        // Rows the transaction inserted are gone: write them again if their line is still there
+        for (CartItem inserted : userChanges.inserted) {
+            Long productId = inserted.getProductId();
+            CartItem line = cart.lines.get(productId);
+            CartItem pending = cart.removed.get(productId);
+            if (line != null && line.getId().equals(inserted.getId())) {
+                cart.unsaved.add(productId);
+                dirtyUsers.add(userId);
+            } else if (pending != null && pending.getId().equals(inserted.getId())) {
+                cart.removed.remove(productId);
+            }
+        }
+    }
+
+    /**
+     * The parts still in effect: those of committed transactions count as plain quantities, those of rolled back
+     * transactions are dropped, and a quantity set by a rolled back transaction gives way to the parts it replaced
+     */
+    private static List<Part> resolve(List<Part> parts) {
+        List<Part> resolved = new ArrayList<>(parts.size());
+        for (Part part : parts) {
+            if (part.owner == null || part.owner.outcome == TransactionChanges.COMMITTED) {
+                resolved.add(new Part(null, part.quantity, null));
+            } else if (part.owner.outcome == TransactionChanges.ROLLED_BACK) {
+                if (part.replaced != null) {
+                    resolved.addAll(resolve(part.replaced));
+                }
+            } else {
+                resolved.add(part.replaced == null ? part : new Part(part.owner, part.quantity, resolve(part.replaced)));
+            }
+        }
+        return resolved;
+    }
+
+    private static int sum(List<Part> parts) {
+        int quantity = 0;
+        for (Part part : parts) {
+            quantity += part.quantity;
+        }
+        return quantity;
+    }
+
+    /** Keeps the parts of open transactions, with the committed ones merged into one; none are kept if all are committed */
+    private static void keepParts(UserCart cart, Long productId, List<Part> resolved) {
+        List<Part> open = new ArrayList<>(resolved.size());
+        int committed = 0;
+        for (Part part : resolved) {
+            if (part.owner == null) {
+                committed += part.quantity;
+            } else {
+                open.add(part);
+            }
+        }
+        if (open.isEmpty()) {
+            cart.parts.remove(productId);
+            return;
+        }
+        if (committed > 0) {
+            open.add(new Part(null, committed, null));
+        }
+        cart.parts.put(productId, open);
+    }
+
+    /** Must be called with the user's stripe lock held, before the line's quantity is changed */
+    private List<Part> partsOf(UserCart cart, CartItem line) {
+        return cart.parts.computeIfAbsent(line.getProductId(),
+                productId -> new ArrayList<>(List.of(new Part(null, line.getQuantity(), null))));
+    }
+
+    private void markDirty(UserCart cart, Long productId) {
+        cart.dirty.add(productId);
+        dirtyUsers.add(cart.lines.get(productId).getUserId());
+    }
+
+    private void removeLine(UserCart cart, CartItem line, TransactionChanges changes) {
+        List<Part> parts = cart.parts.remove(line.getProductId());
+        if (changes != null) {
+            changes.of(line.getUserId()).removals.add(new Removal(copyOf(line),
+                    parts != null ? parts : List.of(new Part(null, line.getQuantity(), null))));
+        }
+        cart.lines.remove(line.getProductId());
+        cart.dirty.remove(line.getProductId());
+        // A row that is waiting to be written again has nothing to delete
+        if (!cart.unsaved.remove(line.getProductId())) {
+            cart.removed.put(line.getProductId(), line);
+        }
+        itemOwners.remove(line.getId());
+        dirtyUsers.add(line.getUserId());
+    }
+
+    private ReentrantLock lockFor(String userId) {
+        return stripes[stripeIndex(userId)];
+    }
+
+    private int stripeIndex(String userId) {
+        return Math.floorMod(userId.hashCode(), stripes.length);
+    }
+
+    private CartItem copyOf(CartItem line) {
+        CartItem copy = new CartItem(line.getProductId(), line.getUserId(), line.getQuantity());
+        copy.setId(line.getId());
+        return copy;
+    }
+
+    /**
+     * In-memory cart of one user; only accessed with the user's stripe lock held
+     */
+    private static final class UserCart {
+        // Lines by product ID
+        private final Map<Long, CartItem> lines = new HashMap<>();
+        // Product IDs whose quantity changed since the last flush
+        private final Set<Long> dirty = new HashSet<>();
+        // Removed lines whose rows still have to be deleted, by product ID
+        private final Map<Long, CartItem> removed = new HashMap<>();
+        // Product IDs of lines whose rows were inserted by a rolled back transaction and have to be written again
+        private final Set<Long> unsaved = new HashSet<>();
+        // How the quantity of each line changed by open transactions is made up, by product ID
+        private final Map<Long, List<Part>> parts = new HashMap<>();
+        // Transactions that changed the cart and have not completed yet
+        private int openTransactions;
+        private volatile long lastAccess;
+
+        CartItem findLine(Long itemId) {
+            for (CartItem line : lines.values()) {
+                if (line.getId().equals(itemId)) {
+                    return line;
+                }
+            }
+            return null;
+        }
+
+        boolean isClean() {
+            return dirty.isEmpty() && removed.isEmpty() && unsaved.isEmpty() && openTransactions == 0;
+        }
+    }
+
+    /**
+     * Quantity a transaction added to a line, or set it to; a set replaces the parts the line had before.
+     * Parts without an owner were made outside a transaction or by one that has committed.
+     */
+    private static final class Part {
+        private final TransactionChanges owner;
+        private final int quantity;
+        private final List<Part> replaced;
+
+        Part(TransactionChanges owner, int quantity, List<Part> replaced) {
+            this.owner = owner;
+            this.quantity = quantity;
+            this.replaced = replaced;
+        }
+    }
+
+    /**
+     * A line removed by a transaction, with the parts its quantity was made up of
+     */
+    private record Removal(CartItem line, List<Part> parts) {
+    }
+
+    /**
+     * What one transaction did to one user's cart
+     */
+    private static final class UserChanges {
+        private final Set<Long> products = new HashSet<>();
+        private final List<Removal> removals = new ArrayList<>();
+        private final List<CartItem> inserted = new ArrayList<>();
+    }
+
+    /**
+     * The carts one transaction changed; settles its changes and releases the carts to write-behind when it completes
+     */
+    private final class TransactionChanges implements TransactionSynchronization {
+        private static final int OPEN = 0;
+        private static final int COMMITTED = 1;
+        private static final int ROLLED_BACK = 2;
+
+        private final Map<String, UserChanges> users = new HashMap<>();
+        // Read under the stripe locks of the carts that hold this transaction's parts
+        private volatile int outcome = OPEN;
+
+        WriteBehindCartStore store() {
+            return WriteBehindCartStore.this;
+        }
+
+        UserChanges of(String userId) {
+            return users.computeIfAbsent(userId, id -> new UserChanges());
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            // An unknown outcome is treated as a rollback: the rows it inserted are written again if still needed
+            outcome = status == STATUS_COMMITTED ? COMMITTED : ROLLED_BACK;
+            users.forEach((userId, userChanges) -> {
+                ReentrantLock lock = lockFor(userId);
+                lock.lock();
+                try {
+                    // Held in memory while the transaction was open, so never evicted
+                    UserCart cart = carts.get(userId);
+                    settle(userId, cart, userChanges, outcome == ROLLED_BACK);
+                    cart.openTransactions--;
+                    if (!cart.isClean()) {
+                        dirtyUsers.add(userId);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            });
+        }
+    }
+}
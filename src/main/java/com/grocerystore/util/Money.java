@@ -0,0 +1,182 @@
+package com.grocerystore.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+
+/**
+ * Fixed-point amount of money: a long count of minor units (cents) in a currency.
+ * Cart and order totals are computed with Money (or plain minor-unit longs in tight loops) and converted
+ * to BigDecimal only where amounts enter or leave the application: entity columns and JSON.
+ * Rounding rules, all HALF_EVEN:
+ * - a BigDecimal amount is rounded to the currency's minor unit once, when converted with of()
+ * - sums and quantity multiples are exact
+ * - a rate (e.g. tax) is applied to the whole amount and rounded to the minor unit once
+ */
+public final class Money implements Comparable<Money> {
+
+    /** Currency of all catalog prices */
+    public static final Currency DEFAULT_CURRENCY = Currency.getInstance("USD");
+
+    /** Rates are expressed in basis points: 800 = 8% */
+    private static final long BASIS_POINTS = 10_000;
+
+    private final long minorUnits;
+    private final Currency currency;
+
+    private Money(long minorUnits, Currency currency) {
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return new Money(minorUnits, DEFAULT_CURRENCY);
+    }
+
+    public static Money ofMinor(long minorUnits, Currency currency) {
+        return new Money(minorUnits, Objects.requireNonNull(currency, "currency"));
+    }
+
+    /**
+     * Convert a BigDecimal amount in the default currency
+     * @param amount the amount, e.g. a product price
+     * @return the amount rounded half-even to whole cents
+     */
+    public static Money of(BigDecimal amount) {
+        return new Money(toMinorUnits(amount, DEFAULT_CURRENCY), DEFAULT_CURRENCY);
+    }
+
+    public static Money zero() {
+        return ofMinor(0);
+    }
+
+    /**
+     * Convert a BigDecimal amount to minor units without creating a Money
+     * @param amount the amount
+     * @param currency the currency, which determines the number of minor units
+     * @return the amount in minor units, rounded half-even
+     * @throws ArithmeticException if the amount does not fit in a long
+     */
+    public static long toMinorUnits(BigDecimal amount, Currency currency) {
+        return amount.setScale(currency.getDefaultFractionDigits(), RoundingMode.HALF_EVEN)
+                .unscaledValue().longValueExact();
+    }
+
+    /**
+     * Convert a BigDecimal amount in the default currency to minor units without creating a Money
+     * @param amount the amount
+     * @return the amount in cents, rounded half-even
+     */
+    public static long toMinorUnits(BigDecimal amount) {
+        return toMinorUnits(amount, DEFAULT_CURRENCY);
+    }
+
+    /**
+     * Convert minor units in the default currency to a BigDecimal
+     * @param minorUnits the amount in cents
+     * @return the amount with two decimals
+     */
+    public static BigDecimal toBigDecimal(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, DEFAULT_CURRENCY.getDefaultFractionDigits());
+    }
+
+    /**
+     * Apply a rate to an amount in minor units
+     * @param minorUnits the amount in minor units
+     * @param rateBasisPoints the rate in basis points (800 = 8%)
+     * @return the rate's share of the amount, rounded half-even to a whole minor unit
+     */
+    public static long applyRate(long minorUnits, long rateBasisPoints) {
+        return divideHalfEven(Math.multiplyExact(minorUnits, rateBasisPoints), BASIS_POINTS);
+    }
+
+    /**
+     * Convert a decimal rate to basis points
+     * @param rate the rate, e.g. 0.08
+     * @return the rate in basis points, e.g. 800
+     * @throws ArithmeticException if the rate is finer than a basis point
+     */
+    public static long toBasisPoints(BigDecimal rate) {
+        return rate.movePointRight(4).longValueExact();
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money times(long quantity) {
+        return new Money(Math.multiplyExact(minorUnits, quantity), currency);
+    }
+
+    /**
+     * Apply a rate to this amount
+     * @param rateBasisPoints the rate in basis points (800 = 8%)
+     * @return the rate's share of this amount, rounded half-even to a whole minor unit
+     */
+    public Money percentage(long rateBasisPoints) {
+        return new Money(applyRate(minorUnits, rateBasisPoints), currency);
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, currency.getDefaultFractionDigits());
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Money)) {
+            return false;
+        }
+        Money money = (Money) o;
+        return minorUnits == money.minorUnits && currency.equals(money.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(minorUnits, currency);
+    }
+
+    @Override
+    public String toString() {
+        return currency.getCurrencyCode() + " " + toBigDecimal().toPlainString();
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " and " + other.currency);
+        }
+    }
+
+    private static long divideHalfEven(long dividend, long divisor) {
+        long quotient = Math.floorDiv(dividend, divisor);
+        long remainder = Math.floorMod(dividend, divisor);
+        long twice = remainder * 2;
+        if (twice > divisor || (twice == divisor && (quotient & 1) != 0)) {
+            quotient++;
+        }
+        return quotient;
+    }
+}
@@ -0,0 +1,79 @@
+-- Initial schema, matching the JPA entities (checked at startup by ddl-auto=validate).
+-- Portable between H2 and PostgreSQL: identity columns, sequences and constraints use standard SQL only.
+
+create sequence orders_seq start with 1 increment by 50;
+
+create sequence order_items_seq start with 1 increment by 50;
+
+create table products (
+    id bigint generated by default as identity,
+    name varchar(255) not null,
+    category varchar(255) not null check (category in ('FRUITS','VEGETABLES','DAIRY','BEVERAGES')),
+    price numeric(10,2) not null,
+    image_url varchar(255),
+    description varchar(1000),
+    stock integer,
+    primary key (id)
+);
+
+create table cart_items (
+    id bigint generated by default as identity,
+    product_id bigint not null,
+    user_id varchar(255) not null,
+    quantity integer not null,
+    last_modified timestamp(6) not null,
+    primary key (id),
+    constraint uk_cart_items_user_product unique (user_id, product_id),
+    constraint fk_cart_items_product foreign key (product_id) references products (id)
+);
+
+create table orders (
+    id bigint not null,
+    user_id varchar(255) not null,
+    order_date timestamp(6) not null,
+    status varchar(255) not null check (status in ('PENDING','CONFIRMED','PROCESSING','SHIPPED','DELIVERED','CANCELLED')),
+    full_name varchar(255) not null,
+    email varchar(255) not null,
+    phone varchar(255) not null,
+    address_line1 varchar(255) not null,
+    address_line2 varchar(255),
+    city varchar(255) not null,
+    state varchar(255) not null,
+    zip_code varchar(255) not null,
+    country varchar(255) not null,
+    subtotal numeric(10,2) not null,
+    tax_amount numeric(10,2) not null,
+    total_amount numeric(10,2) not null,
+    payment_method varchar(255) check (payment_method in ('CREDIT_CARD','DEBIT_CARD','PAYPAL','CASH_ON_DELIVERY')),
+    payment_transaction_id varchar(255),
+    estimated_delivery_date timestamp(6),
+    delivery_instructions varchar(255),
+    primary key (id)
+);
+
+create table order_items (
+    id bigint not null,
+    order_id bigint not null,
+    product_id bigint not null,
+    product_name varchar(255) not null,
+    product_description varchar(255),
+    product_image_url varchar(255),
+    product_category varchar(255) check (product_category in ('FRUITS','VEGETABLES','DAIRY','BEVERAGES')),
+    unit_price numeric(10,2) not null,
+    quantity integer not null,
+    subtotal numeric(10,2) not null,
+    primary key (id),
+    constraint fk_order_items_order foreign key (order_id) references orders (id)
+);
+
+create table idempotency_keys (
+    id bigint generated by default as identity,
+    user_id varchar(255) not null,
+    idempotency_key varchar(255) not null,
+    request_fingerprint varchar(64) not null,
+    order_id bigint not null,
+    response_body varchar(65535) not null,
+    created_at timestamp(6) not null,
+    primary key (id),
+    constraint uk_idempotency_keys_user_key unique (user_id, idempotency_key)
+);
@@ -0,0 +1,20 @@
+-- Indexes backing the repository queries; kept in step with the @Index declarations on the entities.
+-- cart_items(user_id) and cart_items(user_id, product_id) are served by uk_cart_items_user_product.
+
+-- Foreign key lookups when a product is deleted or its cart lines are loaded by product
+create index idx_cart_items_product on cart_items (product_id);
+
+-- Order history: newest first per user, paged by keyset on (order_date, id)
+create index idx_orders_user_date on orders (user_id, order_date, id);
+
+-- Orders by status, newest first
+create index idx_orders_status_date on orders (status, order_date);
+
+-- Loading an order's items
+create index idx_order_items_order on order_items (order_id);
+
+-- Products by category, in name order
+create index idx_products_category_name on products (category, name);
+
+-- Purge of expired idempotency keys
+create index idx_idempotency_keys_created on idempotency_keys (created_at);
@@ -0,0 +1,79 @@
+package com.grocerystore.controller;
+
+import com.grocerystore.dto.AddToCartRequest;
+import com.grocerystore.dto.OrderResponse;
+import com.grocerystore.entity.Category;
+import com.grocerystore.entity.Product;
+import com.grocerystore.repository.ProductRepository;
+import com.grocerystore.service.CartService;
+import com.grocerystore.service.OrderService;
+import com.grocerystore.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Posting a checkout twice with the same Idempotency-Key places one order; the repeat is answered with that order
+ * and marked as a replay.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class OrderControllerIdempotencyTest {
+
+    private static final String CHECKOUT_BODY = "{\"userId\":\"%s\",\"fullName\":\"Idempotent User\","
+            + "\"email\":\"idempotent@example.com\",\"phone\":\"555-0100\",\"addressLine1\":\"1 Test Street\","
+            + "\"city\":\"Springfield\",\"state\":\"IL\",\"zipCode\":\"62701\",\"country\":\"US\","
+            + "\"paymentMethod\":\"CASH_ON_DELIVERY\"}";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Test
+    void repeatedCheckoutPlacesOneOrder() {
+        Product product = new Product("Idempotent product", Category.DAIRY, new BigDecimal("3.50"), null, "Product");
+        product.setStock(100);
+        product = productRepository.save(product);
+        productService.refreshCatalog();
+        String userId = "idempotent-http-" + System.nanoTime();
+        cartService.addToCart(new AddToCartRequest(product.getId(), userId, 2));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("Idempotency-Key", "http-key");
+        HttpEntity<String> checkout = new HttpEntity<>(String.format(CHECKOUT_BODY, userId), headers);
+
+        ResponseEntity<OrderResponse> first = restTemplate.postForEntity("/api/order/checkout", checkout, OrderResponse.class);
+        ResponseEntity<OrderResponse> repeat = restTemplate.postForEntity("/api/order/checkout", checkout, OrderResponse.class);
+
+        assertEquals(HttpStatus.ACCEPTED, first.getStatusCode());
+        assertNull(first.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals(HttpStatus.ACCEPTED, repeat.getStatusCode());
+        assertEquals("true", repeat.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals(first.getBody().getOrderId(), repeat.getBody().getOrderId());
+        assertEquals(1, orderService.getUserOrderCount(userId));
+    }
+}
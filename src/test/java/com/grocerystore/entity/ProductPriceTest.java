@@ -0,0 +1,67 @@
+package com.grocerystore.entity;
+
+import com.grocerystore.dto.CartResponse;
+import com.grocerystore.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The price in cents follows the price however Hibernate writes it, and line totals never overflow silently.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class ProductPriceTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void priceInCentsFollowsRefreshAndMerge() {
+        Long id = productRepository.save(new Product("Price product", Category.FRUITS,
+                new BigDecimal("1.25"), null, "Product")).getId();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Product product = entityManager.find(Product.class, id);
+            assertEquals(125, product.priceMinorUnits());
+            jdbcTemplate.update("UPDATE products SET price = ? WHERE id = ?", new BigDecimal("2.40"), id);
+            entityManager.refresh(product);
+            assertEquals(240, product.priceMinorUnits());
+
+            Product detached = new Product("Price product", Category.FRUITS, new BigDecimal("3.05"), null, "Product");
+            detached.setId(id);
+            Product merged = entityManager.merge(detached);
+            assertEquals(305, merged.priceMinorUnits());
+        });
+    }
+
+    @Test
+    void lineTotalOverflowIsRejected() {
+        Product product = new Product("Expensive product", Category.FRUITS,
+                new BigDecimal("90000000000000000.00"), null, "Product");
+        CartItem line = new CartItem(1L, "user", Integer.MAX_VALUE);
+        line.setProduct(product);
+
+        assertThrows(ArithmeticException.class, () -> new CartResponse.CartItemResponse(line));
+        assertThrows(ArithmeticException.class, () -> new CartResponse.CartItemResponse(1L, 1L, Integer.MAX_VALUE,
+                "Expensive product", product.getPrice(), null, Category.FRUITS, "Product"));
+    }
+}
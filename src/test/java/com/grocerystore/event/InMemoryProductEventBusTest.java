@@ -0,0 +1,98 @@
+package com.grocerystore.event;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Listeners get events in order and only once the publishing transaction commits, and a failing listener does not
+ * keep the event from the listeners after it or from the transport.
+ */
+class InMemoryProductEventBusTest {
+
+    private final List<String> calls = new ArrayList<>();
+
+    @AfterEach
+    void endTransaction() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void listenersAreCalledInOrderWithSubscribedOnesLast() {
+        InMemoryProductEventBus bus = new InMemoryProductEventBus(List.of(listener("catalog"), listener("derived")),
+                new StaticListableBeanFactory().getBeanProvider(ProductEventTransport.class));
+        bus.subscribe(listener("subscribed"));
+
+        bus.publish(ProductChangeEvent.deleted(1L));
+
+        assertEquals(List.of("catalog", "derived", "subscribed"), calls);
+    }
+
+    @Test
+    void eventsPublishedInATransactionAreDeliveredAfterCommit() {
+        InMemoryProductEventBus bus = new InMemoryProductEventBus(List.of(listener("catalog")),
+                new StaticListableBeanFactory().getBeanProvider(ProductEventTransport.class));
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        bus.publish(ProductChangeEvent.deleted(1L));
+        assertTrue(calls.isEmpty());
+
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        assertEquals(List.of("catalog"), calls);
+    }
+
+    @Test
+    void failingListenerDoesNotStopDelivery() {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        RecordingTransport transport = new RecordingTransport();
+        beans.addBean("transport", transport);
+        ProductChangeListener failing = event -> {
+            calls.add("failing");
+            throw new IllegalStateException("listener failed");
+        };
+        InMemoryProductEventBus bus = new InMemoryProductEventBus(List.of(listener("catalog"), failing, listener("derived")),
+                beans.getBeanProvider(ProductEventTransport.class));
+
+        bus.publish(ProductChangeEvent.deleted(1L));
+        assertEquals(List.of("catalog", "failing", "derived"), calls);
+        assertEquals(1, transport.sent.size());
+
+        // Events from other instances go through the same delivery
+        calls.clear();
+        transport.receiver.accept(ProductChangeEvent.deleted(2L));
+        assertEquals(List.of("catalog", "failing", "derived"), calls);
+    }
+
+    private ProductChangeListener listener(String name) {
+        return event -> calls.add(name);
+    }
+
+    private static final class RecordingTransport implements ProductEventTransport {
+
+        private final List<ProductChangeEvent> sent = new ArrayList<>();
+        private Consumer<ProductChangeEvent> receiver;
+
+        @Override
+        public void send(ProductChangeEvent event) {
+            sent.add(event);
+        }
+
+        @Override
+        public void setReceiver(Consumer<ProductChangeEvent> receiver) {
+            this.receiver = receiver;
+        }
+    }
+}
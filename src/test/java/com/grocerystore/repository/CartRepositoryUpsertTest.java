@@ -0,0 +1,156 @@
+package com.grocerystore.repository;
+
+import com.grocerystore.entity.CartItem;
+import com.grocerystore.entity.Category;
+import com.grocerystore.entity.Product;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The cart line upsert under contention, and its effect on the caller's persistence context.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class CartRepositoryUpsertTest {
+
+    private static final int THREADS = 64;
+    private static final int ADDS_PER_THREAD = 20;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private List<Product> products;
+
+    @BeforeEach
+    void createProducts() {
+        List<Product> catalog = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            catalog.add(new Product("Upsert product " + i, Category.FRUITS, new BigDecimal("1.25"), null, "Product " + i));
+        }
+        products = productRepository.saveAll(catalog);
+    }
+
+    @Test
+    void concurrentAddsToNewLinesKeepEveryIncrement() throws Exception {
+        String userId = "upsert-concurrent-" + System.nanoTime();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> adds = new ArrayList<>(THREADS);
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                adds.add(executor.submit(() -> {
+                    start.await();
+                    // Every thread starts on lines that do not exist yet, so the inserts race
+                    for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                        Product product = products.get((thread + i) % products.size());
+                        transactionTemplate.executeWithoutResult(status ->
+                                cartRepository.upsertQuantity(userId, product.getId(), 1 + thread % 3));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> add : adds) {
+                add.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                expected.merge(products.get((t + i) % products.size()).getId(), 1 + t % 3, Integer::sum);
+            }
+        }
+        Map<Long, Integer> actual = new HashMap<>();
+        for (CartItem item : cartRepository.findByUserId(userId)) {
+            actual.put(item.getProductId(), item.getQuantity());
+        }
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void upsertKeepsOtherManagedEntitiesAndReturnsTheCurrentLine() {
+        String userId = "upsert-managed-" + System.nanoTime();
+        Long first = products.get(0).getId();
+        Long second = products.get(1).getId();
+        transactionTemplate.executeWithoutResult(status -> {
+            cartRepository.upsertQuantity(userId, first, 1);
+            cartRepository.upsertQuantity(userId, second, 1);
+        });
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<CartItem> lines = cartRepository.findByUserId(userId);
+            CartItem firstLine = lines.stream().filter(line -> line.getProductId().equals(first)).findFirst().orElseThrow();
+            CartItem secondLine = lines.stream().filter(line -> line.getProductId().equals(second)).findFirst().orElseThrow();
+            firstLine.setQuantity(5);
+
+            CartItem upserted = cartRepository.upsertQuantity(userId, second, 2);
+
+            // The line loaded before the MERGE is reloaded, the other one stays managed
+            assertEquals(3, upserted.getQuantity());
+            assertEquals(3, secondLine.getQuantity());
+            assertTrue(entityManager.contains(firstLine));
+            firstLine.setQuantity(7);
+        });
+
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (CartItem item : cartRepository.findByUserId(userId)) {
+            quantities.put(item.getProductId(), item.getQuantity());
+        }
+        assertEquals(Map.of(first, 7, second, 3), quantities);
+    }
+
+    @Test
+    void upsertLeavesPendingChangesToOtherTablesUnflushed() {
+        String userId = "upsert-flush-" + System.nanoTime();
+        Long productId = products.get(2).getId();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Product product = entityManager.find(Product.class, productId);
+            product.setDescription("Changed");
+
+            assertEquals(4, cartRepository.upsertQuantity(userId, productId, 4).getQuantity());
+
+            // Same connection, so the row shows whether the product change was written before the MERGE
+            assertEquals("Product 2", jdbcTemplate.queryForObject(
+                    "SELECT description FROM products WHERE id = ?", String.class, productId));
+        });
+
+        assertEquals("Changed", productRepository.findById(productId).orElseThrow().getDescription());
+    }
+}
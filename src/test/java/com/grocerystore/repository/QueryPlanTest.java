@@ -0,0 +1,210 @@
+package com.grocerystore.repository;
+
+import com.grocerystore.config.QueryCountInspector;
+import com.grocerystore.dto.AddToCartRequest;
+import com.grocerystore.dto.CheckoutRequest;
+import com.grocerystore.dto.OrderResponse;
+import com.grocerystore.entity.Category;
+import com.grocerystore.entity.IdempotencyRecord;
+import com.grocerystore.entity.Order;
+import com.grocerystore.entity.Product;
+import com.grocerystore.service.CartService;
+import com.grocerystore.service.OrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Every indexed repository query is planned with an index: the SQL Hibernate actually generates for it is
+ * recorded and run through H2's EXPLAIN. Queries that read whole tables by design (catalog loads, the product
+ * export, substring search and the order date range reports) are not checked.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class QueryPlanTest {
+
+    private static final String TABLE_SCAN = ".tableScan";
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private QueryCountInspector queryCountInspector;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Map<String, List<String>> statements = new LinkedHashMap<>();
+
+    private String userId;
+    private Product product;
+    private Long orderId;
+
+    @BeforeEach
+    void placeOrder() {
+        userId = "query-plan-" + System.nanoTime();
+        product = new Product("Query plan product", Category.FRUITS, new BigDecimal("1.50"), null, "Product");
+        product.setStock(100);
+        product = productRepository.save(product);
+
+        cartService.addToCart(new AddToCartRequest(product.getId(), userId, 2));
+        CheckoutRequest request = new CheckoutRequest();
+        request.setUserId(userId);
+        request.setFullName("Query Plan");
+        request.setEmail("query-plan@example.com");
+        request.setPhone("555-0100");
+        request.setAddressLine1("1 Test Street");
+        request.setCity("Springfield");
+        request.setState("IL");
+        request.setZipCode("62701");
+        request.setCountry("US");
+        request.setPaymentMethod(Order.PaymentMethod.CASH_ON_DELIVERY);
+        orderId = orderService.processCheckout(request).getOrderId();
+
+        cartService.addToCart(new AddToCartRequest(product.getId(), userId, 1));
+        idempotencyRecordRepository.save(new IdempotencyRecord(userId, "key", "fingerprint", orderId, "{}"));
+    }
+
+    @Test
+    void indexedRepositoryQueriesDoNotScanWholeTables() {
+        LocalDateTime now = LocalDateTime.now();
+        Long lineId = cartRepository.findByUserIdAndProductId(userId, product.getId()).orElseThrow().getId();
+
+        record("CartRepository.findByUserId", () -> cartRepository.findByUserId(userId));
+        record("CartRepository.findByUserIdAndProductId",
+                () -> cartRepository.findByUserIdAndProductId(userId, product.getId()));
+        record("CartRepository.countItemsByUserId", () -> cartRepository.countItemsByUserId(userId));
+        record("CartRepository.findByUserIdWithProducts", () -> cartRepository.findByUserIdWithProducts(userId));
+        record("CartRepository.findItemResponsesByUserId", () -> cartRepository.findItemResponsesByUserId(userId));
+        record("CartRepository.findQuantityForUpdate", () -> cartRepository.findQuantityForUpdate(lineId));
+        record("CartRepository.findLineQuantitiesForUpdate", () -> cartRepository.findLineQuantitiesForUpdate(userId));
+        record("CartRepository.updateQuantity", () -> cartRepository.updateQuantity(lineId, 3, now));
+        record("CartRepository.findAbandonedUserIds",
+                () -> cartRepository.findAbandonedUserIds("", now, PageRequest.of(0, 200)));
+        record("CartRepository.deleteAbandoned", () -> cartRepository.deleteAbandoned(List.of(userId), now.minusDays(1)));
+        record("CartRepository.deleteItemById", () -> cartRepository.deleteItemById(lineId));
+        record("CartRepository.deleteItemsByIds", () -> cartRepository.deleteItemsByIds(List.of(lineId)));
+        record("CartRepository.deleteByUserId", () -> cartRepository.deleteByUserId(userId));
+
+        record("OrderRepository.findByUserIdOrderByOrderDateDesc",
+                () -> orderRepository.findByUserIdOrderByOrderDateDesc(userId));
+        record("OrderRepository.findByStatusOrderByOrderDateDesc",
+                () -> orderRepository.findByStatusOrderByOrderDateDesc(Order.OrderStatus.PENDING));
+        record("OrderRepository.findByUserIdAndStatusOrderByOrderDateDesc",
+                () -> orderRepository.findByUserIdAndStatusOrderByOrderDateDesc(userId, Order.OrderStatus.PENDING));
+        record("OrderRepository.findSummariesByUserId",
+                () -> orderRepository.findSummariesByUserId(userId, PageRequest.of(0, 21)));
+        record("OrderRepository.findSummariesByUserIdBefore",
+                () -> orderRepository.findSummariesByUserIdBefore(userId, now, orderId, PageRequest.of(0, 21)));
+        record("OrderRepository.findIdsByStatusPlacedBefore",
+                () -> orderRepository.findIdsByStatusPlacedBefore(Order.OrderStatus.PENDING, now, PageRequest.of(0, 100)));
+        record("OrderRepository.findPaymentTransactionIdById", () -> orderRepository.findPaymentTransactionIdById(orderId));
+        record("OrderRepository.updateStatusIfCurrent", () -> orderRepository.updateStatusIfCurrent(orderId,
+                Order.OrderStatus.CANCELLED, Order.OrderStatus.CANCELLED));
+        record("OrderRepository.countByUserId", () -> orderRepository.countByUserId(userId));
+        record("OrderRepository.findResponseById", () -> {
+            OrderResponse response = orderRepository.findResponseById(orderId).orElseThrow();
+            assertFalse(response.getItems().isEmpty());
+        });
+
+        record("ProductRepository.findByCategory", () -> productRepository.findByCategory(Category.FRUITS));
+        record("ProductRepository.findStockById", () -> productRepository.findStockById(product.getId()));
+        record("ProductRepository.adjustStock", () -> productRepository.adjustStock(product.getId(), 1));
+
+        record("IdempotencyRecordRepository.findByUserIdAndIdempotencyKey",
+                () -> idempotencyRecordRepository.findByUserIdAndIdempotencyKey(userId, "key"));
+        record("IdempotencyRecordRepository.deleteCreatedBefore",
+                () -> idempotencyRecordRepository.deleteCreatedBefore(now.minusDays(1)));
+        record("IdempotencyRecordRepository.deleteByUserIdAndIdempotencyKey",
+                () -> idempotencyRecordRepository.deleteByUserIdAndIdempotencyKey(userId, "key"));
+
+        Map<String, String> fullScans = new LinkedHashMap<>();
+        statements.forEach((query, sqls) -> {
+            List<String> checked = new ArrayList<>();
+            for (String sql : sqls) {
+                String normalized = sql.trim().toLowerCase(Locale.ROOT);
+                // Inserts and ID allocation from the sequences have nothing to look up
+                if (normalized.startsWith("insert") || normalized.contains("next value for")) {
+                    continue;
+                }
+                checked.add(sql);
+                String plan = explain(sql);
+                if (plan.contains(TABLE_SCAN)) {
+                    fullScans.put(query, plan);
+                }
+            }
+            assertFalse(checked.isEmpty(), () -> query + " ran no statement to check: " + sqls);
+        });
+        assertTrue(fullScans.isEmpty(), () -> {
+            StringBuilder message = new StringBuilder("Queries planned as full table scans:");
+            fullScans.forEach((query, plan) -> message.append("\n  ").append(query).append(": ").append(plan));
+            return message.toString();
+        });
+    }
+
+    /** Run a repository call in its own transaction, keeping the SQL it prepares */
+    private void record(String query, Runnable call) {
+        queryCountInspector.beginRecording();
+        try {
+            transactionTemplate.executeWithoutResult(status -> call.run());
+        } finally {
+            statements.put(query, queryCountInspector.endRecording());
+        }
+    }
+
+    /** EXPLAIN a recorded statement; the plan is chosen when it is prepared, so the parameters are left null */
+    private String explain(String sql) {
+        return jdbcTemplate.execute((Connection connection) -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                int parameters = statement.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameters; i++) {
+                    statement.setObject(i, null);
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        plan.append(rows.getString(1)).append(' ');
+                    }
+                }
+                return plan.toString().replaceAll("\\s+", " ").trim();
+            }
+        });
+    }
+}
@@ -0,0 +1,148 @@
+package com.grocerystore.service;
+
+import com.grocerystore.entity.Category;
+import com.grocerystore.entity.Product;
+import com.grocerystore.repository.CartRepository;
+import com.grocerystore.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The purge deletes abandoned carts through the write-behind store without holding up the other carts on their
+ * stripes, and publishes what it reclaimed.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "grocerystore.cart.store=write-behind",
+        "grocerystore.cart.expiry.enabled=true",
+        "grocerystore.cart.expiry.interval-ms=3600000",
+        "grocerystore.cart.expiry.pause-ms=0",
+        "grocerystore.cart.write-behind.lock-stripes=4"
+})
+@ActiveProfiles("test")
+class CartExpiryJobTest {
+
+    private static final int ABANDONED_USERS = 20;
+
+    @Autowired
+    private CartExpiryJob cartExpiryJob;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void purgeDeletesAbandonedCartsAndPublishesTheReclaimedRows() {
+        String prefix = "expiry-" + System.nanoTime() + "-";
+        Long first = productRepository.save(new Product("Expiry product 1", Category.FRUITS,
+                new BigDecimal("1.00"), null, "Product")).getId();
+        Long second = productRepository.save(new Product("Expiry product 2", Category.FRUITS,
+                new BigDecimal("2.00"), null, "Product")).getId();
+        Timestamp old = Timestamp.valueOf(LocalDateTime.now().minusDays(90));
+        for (int i = 0; i < ABANDONED_USERS; i++) {
+            for (Long productId : new Long[]{first, second}) {
+                jdbcTemplate.update("INSERT INTO cart_items (user_id, product_id, quantity, last_modified) VALUES (?, ?, ?, ?)",
+                        prefix + i, productId, 1, old);
+            }
+        }
+        // Held in memory by the write-behind store, so kept
+        String active = prefix + "active";
+        jdbcTemplate.update("INSERT INTO cart_items (user_id, product_id, quantity, last_modified) VALUES (?, ?, ?, ?)",
+                active, first, 1, old);
+        cartService.getCart(active);
+        double rowsBefore = meterRegistry.get("grocerystore.cart.expiry.reclaimed.rows").functionCounter().count();
+
+        cartExpiryJob.purge();
+
+        for (int i = 0; i < ABANDONED_USERS; i++) {
+            assertTrue(cartRepository.findByUserId(prefix + i).isEmpty());
+        }
+        assertEquals(1, cartRepository.findByUserId(active).size());
+        double reclaimed = meterRegistry.get("grocerystore.cart.expiry.reclaimed.rows").functionCounter().count() - rowsBefore;
+        assertEquals(2.0 * ABANDONED_USERS, reclaimed);
+        assertEquals(2.0 * ABANDONED_USERS, meterRegistry.get("grocerystore.cart.expiry.last.run.rows").gauge().value());
+    }
+
+    @Test
+    void deleteLeavesTheOtherCartsOfItsStripeAvailable() throws Exception {
+        String prefix = "expiry-stripe-" + System.nanoTime() + "-";
+        Long productId = productRepository.save(new Product("Expiry product 3", Category.FRUITS,
+                new BigDecimal("3.00"), null, "Product")).getId();
+        String abandoned = prefix + "abandoned";
+        String neighbour = prefix + 0;
+        for (int i = 1; Math.floorMod(neighbour.hashCode(), 4) != Math.floorMod(abandoned.hashCode(), 4); i++) {
+            neighbour = prefix + i;
+        }
+        jdbcTemplate.update("INSERT INTO cart_items (user_id, product_id, quantity, last_modified) VALUES (?, ?, ?, ?)",
+                abandoned, productId, 1, Timestamp.valueOf(LocalDateTime.now().minusDays(90)));
+        String neighbourId = neighbour;
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            CountDownLatch rowLocked = new CountDownLatch(1);
+            CountDownLatch neighbourServed = new CountDownLatch(1);
+            // Holds the abandoned row locked, so the purge's delete waits until the neighbour's cart has been served
+            Future<Boolean> blocker = executor.submit(() -> new TransactionTemplate(transactionManager).execute(status -> {
+                jdbcTemplate.queryForList("SELECT id FROM cart_items WHERE user_id = ? FOR UPDATE", abandoned);
+                rowLocked.countDown();
+                try {
+                    return neighbourServed.await(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }));
+            assertTrue(rowLocked.await(5, TimeUnit.SECONDS));
+            Future<Integer> purge = executor.submit(() ->
+                    cartStore.deleteAbandoned(List.of(abandoned), LocalDateTime.now().minusDays(30)));
+            Thread.sleep(100);
+
+            executor.submit(() -> {
+                cartService.getCart(neighbourId);
+                neighbourServed.countDown();
+            });
+
+            assertTrue(blocker.get(5, TimeUnit.SECONDS), "the neighbour's cart waited for the delete");
+            assertEquals(1, purge.get(5, TimeUnit.SECONDS));
+            assertTrue(cartService.getCart(abandoned).getItems().isEmpty());
+            assertTrue(cartRepository.findByUserId(abandoned).isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.grocerystore.service;
+
+import com.grocerystore.dto.AddToCartRequest;
+import com.grocerystore.dto.BatchCartRequest;
+import com.grocerystore.dto.CartResponse;
+import com.grocerystore.entity.CartItem;
+import com.grocerystore.entity.Category;
+import com.grocerystore.entity.Product;
+import com.grocerystore.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Cart summaries must match the cart after concurrent writes whose effect depends on the cart's state, and are
+ * kept up to date by the deltas of those writes rather than derived again.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class CartServiceSummaryTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartSummaryCache summaryCache;
+
+    private Product product;
+    private Product other;
+
+    @BeforeEach
+    void createProduct() {
+        product = productRepository.save(new Product("Summary product", Category.FRUITS, new BigDecimal("1.50"), null, "Product"));
+        other = productRepository.save(new Product("Other summary product", Category.DAIRY, new BigDecimal("0.25"), null, "Product"));
+        productService.refreshCatalog();
+    }
+
+    @Test
+    void updatesRemovesAndClearsApplyTheirDeltas() {
+        String userId = "summary-deltas-" + System.nanoTime();
+        CartItem line = cartService.addToCart(new AddToCartRequest(product.getId(), userId, 2));
+        CartItem otherLine = cartService.addToCart(new AddToCartRequest(other.getId(), userId, 4));
+        assertEquals(6, cartService.getCartSummary(userId).getItemCount());
+
+        cartService.updateCartItemQuantity(line.getId(), 5);
+        assertEquals(new CartTotals(9, "8.50"), cachedTotals(userId));
+
+        BatchCartRequest batch = new BatchCartRequest();
+        batch.setUserId(userId);
+        batch.setOperations(List.of(
+                operation(BatchCartRequest.OperationType.UPDATE, null, line.getId(), 3),
+                operation(BatchCartRequest.OperationType.ADD, other.getId(), null, 1),
+                operation(BatchCartRequest.OperationType.REMOVE, null, otherLine.getId(), null)));
+        cartService.applyBatch(batch);
+        assertEquals(new CartTotals(3, "4.50"), cachedTotals(userId));
+
+        cartService.addToCart(new AddToCartRequest(other.getId(), userId, 2));
+        assertEquals(new CartTotals(5, "5.00"), cachedTotals(userId));
+        cartService.removeFromCart(line.getId(), userId);
+        assertEquals(new CartTotals(2, "0.50"), cachedTotals(userId));
+        cartService.clearCart(userId);
+        assertEquals(new CartTotals(0, "0.00"), cachedTotals(userId));
+    }
+
+    @Test
+    void concurrentMixedWritesLeaveTheSummaryMatchingTheCart() throws Exception {
+        String userId = "summary-mixed-" + System.nanoTime();
+        CartItem line = cartService.addToCart(new AddToCartRequest(product.getId(), userId, 3));
+        cartService.addToCart(new AddToCartRequest(other.getId(), userId, 3));
+        assertEquals(6, cartService.getCartSummary(userId).getItemCount());
+
+        runConcurrently(thread -> {
+            switch (thread % 4) {
+                case 0 -> cartService.addToCart(new AddToCartRequest(product.getId(), userId, 2));
+                case 1 -> cartService.updateCartItemQuantity(line.getId(), 1 + thread);
+                case 2 -> cartService.addToCart(new AddToCartRequest(other.getId(), userId, 1));
+                default -> cartService.clearCart(userId);
+            }
+        });
+
+        // Totals of the lines themselves; the cart's own totals come from the cached summary
+        int itemCount = 0;
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (CartResponse.CartItemResponse item : cartService.getCart(userId).getItems()) {
+            itemCount += item.getQuantity();
+            subtotal = subtotal.add(item.getSubtotal());
+        }
+        CartSummary summary = cartService.getCartSummary(userId);
+        assertEquals(itemCount, summary.getItemCount());
+        assertEquals(0, subtotal.compareTo(summary.getSubtotal()));
+    }
+
+    @Test
+    void concurrentQuantityUpdatesLeaveTheSummaryMatchingTheCart() throws Exception {
+        String userId = "summary-updates-" + System.nanoTime();
+        CartItem line = cartService.addToCart(new AddToCartRequest(product.getId(), userId, 5));
+        // Cache the summary so the updates have something to drift from
+        assertEquals(5, cartService.getCartSummary(userId).getItemCount());
+
+        runConcurrently(thread -> cartService.updateCartItemQuantity(line.getId(), 1 + thread));
+
+        int quantity = cartService.getCart(userId).getItems().get(0).getQuantity();
+        assertEquals(quantity, cartService.getCartSummary(userId).getItemCount());
+        assertEquals(new BigDecimal("1.50").multiply(BigDecimal.valueOf(quantity)),
+                cartService.getCartSummary(userId).getSubtotal());
+    }
+
+    @Test
+    void removingALineThatIsAlreadyGoneLeavesTheSummaryAlone() throws Exception {
+        String userId = "summary-removes-" + System.nanoTime();
+        CartItem line = cartService.addToCart(new AddToCartRequest(product.getId(), userId, 4));
+        assertEquals(4, cartService.getCartSummary(userId).getItemCount());
+
+        runConcurrently(thread -> cartService.removeFromCart(line.getId(), userId));
+
+        assertFalse(cartService.removeFromCart(line.getId(), userId));
+        assertEquals(0, cartService.getCartSummary(userId).getItemCount());
+        cartService.addToCart(new AddToCartRequest(product.getId(), userId, 2));
+        assertEquals(2, cartService.getCartSummary(userId).getItemCount());
+    }
+
+    /** The cached summary's totals; fails if the summary has to be derived from the cart again */
+    private CartTotals cachedTotals(String userId) {
+        CartSummary summary = summaryCache.get(userId, () -> fail("Summary was dropped and derived again"));
+        return new CartTotals(summary.getItemCount(), summary.getSubtotal().toPlainString());
+    }
+
+    private static BatchCartRequest.Operation operation(BatchCartRequest.OperationType type, Long productId,
+                                                        Long itemId, Integer quantity) {
+        BatchCartRequest.Operation operation = new BatchCartRequest.Operation();
+        operation.setType(type);
+        operation.setProductId(productId);
+        operation.setItemId(itemId);
+        operation.setQuantity(quantity);
+        return operation;
+    }
+
+    private record CartTotals(int itemCount, String subtotal) {}
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> tasks = new ArrayList<>(THREADS);
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                tasks.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        task.run(thread);
+                    } catch (RuntimeException e) {
+                        // A write that lost a race with another one is fine; the summary must still match
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : tasks) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThreadTask {
+        void run(int thread);
+    }
+}
@@ -0,0 +1,84 @@
+package com.grocerystore.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Entries are pruned once they hold nothing, and product changes only reach the summaries containing the product.
+ */
+class CartSummaryCacheTest {
+
+    private static final long APPLE = 1L;
+    private static final long BREAD = 2L;
+
+    @Test
+    void entriesWithoutSummaryOrPendingWritesAreRemoved() {
+        CartSummaryCache cache = new CartSummaryCache(60_000);
+        cache.get("evicted", () -> summary(APPLE, 2));
+        cache.get("invalidated", () -> summary(APPLE, 2));
+        cache.get("kept", () -> summary(BREAD, 1));
+        assertEquals(3, cache.size());
+
+        cache.evict("evicted");
+        cache.invalidateOnCompletion("invalidated");
+        cache.evict("never-seen");
+
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void idleEntriesAreRemoved() {
+        CartSummaryCache cache = new CartSummaryCache(0);
+        cache.get("idle", () -> summary(APPLE, 2));
+        cache.readToken("reader");
+
+        cache.evictIdle();
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void productChangeOnlyDropsSummariesContainingTheProduct() {
+        CartSummaryCache cache = new CartSummaryCache(60_000);
+        CartSummary withApple = cache.get("apple", () -> summary(APPLE, 2));
+        CartSummary withBread = cache.get("bread", () -> summary(BREAD, 1));
+
+        cache.productChanged(APPLE);
+
+        AtomicInteger derivations = new AtomicInteger();
+        assertEquals(withBread.getVersion(), cache.get("bread", () -> {
+            derivations.incrementAndGet();
+            return summary(BREAD, 1);
+        }).getVersion());
+        assertNotEquals(withApple.getVersion(), cache.get("apple", () -> {
+            derivations.incrementAndGet();
+            return summary(APPLE, 2);
+        }).getVersion());
+        assertEquals(1, derivations.get());
+    }
+
+    @Test
+    void summaryDerivedBeforeAProductChangeIsNotStored() {
+        CartSummaryCache cache = new CartSummaryCache(60_000);
+        long token = cache.readToken("user");
+        cache.productChanged(APPLE);
+
+        cache.offer("user", token, summary(APPLE, 2));
+
+        AtomicInteger derivations = new AtomicInteger();
+        cache.get("user", () -> {
+            derivations.incrementAndGet();
+            return summary(APPLE, 2);
+        });
+        assertEquals(1, derivations.get());
+    }
+
+    private static CartSummary summary(long productId, int quantity) {
+        return new CartSummary(quantity, quantity * 100L, 0, Map.of(productId, quantity));
+    }
+}
@@ -0,0 +1,202 @@
+package com.grocerystore.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grocerystore.dto.AddToCartRequest;
+import com.grocerystore.dto.CheckoutRequest;
+import com.grocerystore.dto.OrderResponse;
+import com.grocerystore.entity.Category;
+import com.grocerystore.entity.Order;
+import com.grocerystore.entity.Product;
+import com.grocerystore.repository.IdempotencyRecordRepository;
+import com.grocerystore.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A checkout runs once per user and Idempotency-Key: repeats replay it, from memory or from the table, concurrent
+ * repeats wait for it, a key cannot be reused for another request, and an undone checkout frees its key.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class CheckoutIdempotencyStoreTest {
+
+    @Autowired
+    private CheckoutIdempotencyStore idempotencyStore;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Product product;
+    private String userId;
+
+    @BeforeEach
+    void createProductAndUser() {
+        Product created = new Product("Idempotency product", Category.DAIRY, new BigDecimal("2.00"), null, "Product");
+        created.setStock(1_000);
+        product = productRepository.save(created);
+        productService.refreshCatalog();
+        userId = "idempotency-" + System.nanoTime();
+    }
+
+    @Test
+    void repeatReplaysTheFirstCheckout() {
+        CheckoutRequest request = fillCartAndRequest();
+
+        CheckoutIdempotencyStore.Outcome first = orderService.processCheckout(request, "replay-key");
+        cartService.addToCart(new AddToCartRequest(product.getId(), userId, 1));
+        CheckoutIdempotencyStore.Outcome repeat = orderService.processCheckout(request, "replay-key");
+
+        assertFalse(first.replayed());
+        assertTrue(repeat.replayed());
+        assertEquals(first.response().getOrderId(), repeat.response().getOrderId());
+        assertEquals(1, orderService.getUserOrderCount(userId));
+        // The repeat did not check out the cart filled since
+        assertEquals(1, cartService.getCartItemCount(userId));
+
+        // A store that never saw the key, as after a restart, replays it from the table
+        CheckoutIdempotencyStore restarted = newStore();
+        CheckoutIdempotencyStore.Outcome stored = restarted.execute(userId, "replay-key", request, claim -> {
+            throw new AssertionError("A recorded checkout ran again");
+        });
+        assertTrue(stored.replayed());
+        assertEquals(first.response().getOrderId(), stored.response().getOrderId());
+    }
+
+    @Test
+    void keyCannotBeReusedForAnotherRequest() {
+        CheckoutRequest request = fillCartAndRequest();
+        orderService.processCheckout(request, "reused-key");
+
+        CheckoutRequest other = fillCartAndRequest();
+        other.setEmail("someone-else@example.com");
+
+        assertThrows(IllegalArgumentException.class, () -> orderService.processCheckout(other, "reused-key"));
+        assertThrows(IllegalArgumentException.class, () -> newStore().execute(userId, "reused-key", other, claim -> {
+            throw new AssertionError("A checkout ran for a reused key");
+        }));
+        assertEquals(1, orderService.getUserOrderCount(userId));
+    }
+
+    @Test
+    void concurrentRepeatWaitsForTheFirstCheckout() throws Exception {
+        CheckoutRequest request = fillCartAndRequest();
+        // The response the blocked checkout records; it needs an existing order
+        OrderResponse placed = orderService.processCheckout(request);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        CompletableFuture<CheckoutIdempotencyStore.Outcome> first = CompletableFuture.supplyAsync(() ->
+                idempotencyStore.execute(userId, "waiting-key", request, claim -> {
+                    runs.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                    transactionTemplate.executeWithoutResult(status -> claim.record(placed));
+                    return placed;
+                }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        CompletableFuture<CheckoutIdempotencyStore.Outcome> repeat = CompletableFuture.supplyAsync(() ->
+                idempotencyStore.execute(userId, "waiting-key", request, claim -> {
+                    runs.incrementAndGet();
+                    return placed;
+                }));
+
+        // The repeat is parked on the first execution until it completes
+        Thread.sleep(200);
+        assertFalse(repeat.isDone());
+        release.countDown();
+
+        assertFalse(first.get(10, TimeUnit.SECONDS).replayed());
+        CheckoutIdempotencyStore.Outcome replayed = repeat.get(10, TimeUnit.SECONDS);
+        assertTrue(replayed.replayed());
+        assertEquals(placed.getOrderId(), replayed.response().getOrderId());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void forgottenKeyRunsTheCheckoutAgain() {
+        CheckoutRequest request = fillCartAndRequest();
+        OrderResponse placed = orderService.processCheckout(request);
+
+        // Recorded and then undone, as a checkout whose payment could not be started
+        assertThrows(PaymentServiceBusyException.class, () -> idempotencyStore.execute(userId, "forgotten-key", request,
+                claim -> {
+                    transactionTemplate.executeWithoutResult(status -> claim.record(placed));
+                    transactionTemplate.executeWithoutResult(status -> claim.forget());
+                    throw new PaymentServiceBusyException(1);
+                }));
+        assertTrue(idempotencyRecordRepository.findByUserIdAndIdempotencyKey(userId, "forgotten-key").isEmpty());
+
+        AtomicInteger runs = new AtomicInteger();
+        CheckoutIdempotencyStore.Outcome retry = idempotencyStore.execute(userId, "forgotten-key", request, claim -> {
+            runs.incrementAndGet();
+            transactionTemplate.executeWithoutResult(status -> claim.record(placed));
+            return placed;
+        });
+        assertFalse(retry.replayed());
+        assertEquals(1, runs.get());
+    }
+
+    private CheckoutIdempotencyStore newStore() {
+        return new CheckoutIdempotencyStore(idempotencyRecordRepository, objectMapper, 10, 1_000, Duration.ofHours(1));
+    }
+
+    private CheckoutRequest fillCartAndRequest() {
+        cartService.addToCart(new AddToCartRequest(product.getId(), userId, 2));
+        CheckoutRequest request = new CheckoutRequest();
+        request.setUserId(userId);
+        request.setFullName("Idempotency");
+        request.setEmail("idempotency@example.com");
+        request.setPhone("555-0100");
+        request.setAddressLine1("1 Test Street");
+        request.setCity("Springfield");
+        request.setState("IL");
+        request.setZipCode("62701");
+        request.setCountry("US");
+        request.setPaymentMethod(Order.PaymentMethod.CASH_ON_DELIVERY);
+        return request;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.grocerystore.service;
+
+import com.grocerystore.entity.Category;
+import com.grocerystore.entity.Product;
+import com.grocerystore.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * A product the ledger found untracked is tracked once reconciliation sees stock for it in the database.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "grocerystore.inventory.reconcile-interval-ms=0")
+@ActiveProfiles("test")
+class InventoryLedgerTest {
+
+    @Autowired
+    private InventoryLedger inventoryLedger;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void reconciliationStartsTrackingStockSetElsewhere() {
+        Long productId = productRepository.save(new Product("Ledger product", Category.FRUITS,
+                new BigDecimal("1.00"), null, "Product")).getId();
+        assertNull(inventoryLedger.getAvailable(productId));
+
+        jdbcTemplate.update("UPDATE products SET stock = ? WHERE id = ?", 40, productId);
+        inventoryLedger.flush();
+
+        assertEquals(40L, inventoryLedger.getAvailable(productId));
+    }
+}
@@ -0,0 +1,168 @@
+package com.grocerystore.service;
+
+import com.grocerystore.dto.AddToCartRequest;
+import com.grocerystore.dto.CheckoutRequest;
+import com.grocerystore.dto.OrderResponse;
+import com.grocerystore.dto.OrderSummary;
+import com.grocerystore.entity.Category;
+import com.grocerystore.entity.Order;
+import com.grocerystore.entity.Product;
+import com.grocerystore.repository.IdempotencyRecordRepository;
+import com.grocerystore.repository.OrderRepository;
+import com.grocerystore.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Orders cancelled while their payment may be authorized have the authorization voided, and a checkout whose
+ * payment cannot be started is undone.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "grocerystore.payment.timeout-ms=200")
+@ActiveProfiles("test")
+class OrderServicePaymentOutcomeTest {
+
+    @MockBean
+    private PaymentGateway paymentGateway;
+
+    @SpyBean(name = "paymentExecutor")
+    private AsyncTaskExecutor paymentExecutor;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private Product product;
+
+    @BeforeEach
+    void createProduct() {
+        Product created = new Product("Payment outcome product", Category.DAIRY, new BigDecimal("4.00"), null, "Product");
+        created.setStock(1_000);
+        product = productRepository.save(created);
+        productService.refreshCatalog();
+    }
+
+    @Test
+    void authorizationThatSucceedsAfterTheTimeoutIsVoided() throws Exception {
+        CountDownLatch gatewayDone = new CountDownLatch(1);
+        when(paymentGateway.authorize(any(), any(), any())).thenAnswer(invocation -> {
+            gatewayDone.await(10, TimeUnit.SECONDS);
+            return true;
+        });
+        String userId = "payment-timeout-" + System.nanoTime();
+        OrderResponse order = orderService.processCheckout(fillCartAndRequest(userId));
+
+        awaitStatus(order.getOrderId(), Order.OrderStatus.CANCELLED);
+        gatewayDone.countDown();
+
+        verify(paymentGateway, timeout(5_000)).voidAuthorization(order.getPaymentTransactionId());
+    }
+
+    @Test
+    void staleOrderSweepVoidsThePayment() {
+        CountDownLatch gatewayDone = new CountDownLatch(1);
+        when(paymentGateway.authorize(any(), any(), any())).thenAnswer(invocation -> {
+            gatewayDone.await(10, TimeUnit.SECONDS);
+            return false;
+        });
+        String userId = "payment-sweep-" + System.nanoTime();
+        OrderResponse order = orderService.processCheckout(fillCartAndRequest(userId));
+        try {
+            // Still PENDING: the sweep cancels it as if its outcome had been lost
+            orderService.cancelStalePendingOrders(LocalDateTime.now().plusMinutes(1), 1_000);
+        } finally {
+            gatewayDone.countDown();
+        }
+
+        assertEquals(Order.OrderStatus.CANCELLED, orderRepository.findById(order.getOrderId()).orElseThrow().getStatus());
+        verify(paymentGateway).voidAuthorization(order.getPaymentTransactionId());
+    }
+
+    @Test
+    void rejectedPaymentRestoresTheCartAndFreesTheIdempotencyKey() {
+        doThrow(new RejectedExecutionException("full")).when(paymentExecutor).execute(any(Runnable.class));
+        String userId = "payment-rejected-" + System.nanoTime();
+        CheckoutRequest request = fillCartAndRequest(userId);
+
+        PaymentServiceBusyException busy = assertThrows(PaymentServiceBusyException.class,
+                () -> orderService.processCheckout(request, "rejected-key"));
+
+        assertEquals(1, busy.getRetryAfterSeconds());
+
+        assertEquals(3, cartService.getCartItemCount(userId));
+        assertTrue(idempotencyRecordRepository.findByUserIdAndIdempotencyKey(userId, "rejected-key").isEmpty());
+        List<OrderSummary> orders = orderRepository.findSummariesByUserId(userId, PageRequest.of(0, 10));
+        assertEquals(1, orders.size());
+        assertEquals(Order.OrderStatus.CANCELLED, orders.get(0).getStatus());
+
+        // Once the executor has room, the same key checks out the restored cart instead of replaying
+        reset(paymentExecutor);
+        CheckoutIdempotencyStore.Outcome retry = orderService.processCheckout(request, "rejected-key");
+        assertFalse(retry.replayed());
+        assertNotEquals(orders.get(0).getOrderId(), retry.response().getOrderId());
+    }
+
+    private CheckoutRequest fillCartAndRequest(String userId) {
+        cartService.addToCart(new AddToCartRequest(product.getId(), userId, 3));
+        CheckoutRequest request = new CheckoutRequest();
+        request.setUserId(userId);
+        request.setFullName("Payment Outcome");
+        request.setEmail("payment-outcome@example.com");
+        request.setPhone("555-0100");
+        request.setAddressLine1("1 Test Street");
+        request.setCity("Springfield");
+        request.setState("IL");
+        request.setZipCode("62701");
+        request.setCountry("US");
+        request.setPaymentMethod(Order.PaymentMethod.CREDIT_CARD);
+        return request;
+    }
+
+    private void awaitStatus(Long orderId, Order.OrderStatus status) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (orderRepository.findById(orderId).orElseThrow().getStatus() != status) {
+            assertTrue(System.nanoTime() < deadline, "Order " + orderId + " never became " + status);
+            Thread.sleep(20);
+        }
+    }
+}
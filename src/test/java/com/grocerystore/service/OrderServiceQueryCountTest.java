@@ -0,0 +1,107 @@
+package com.grocerystore.service;
+
+import com.grocerystore.config.QueryCountInspector;
+import com.grocerystore.dto.AddToCartRequest;
+import com.grocerystore.dto.CheckoutRequest;
+import com.grocerystore.entity.Category;
+import com.grocerystore.entity.Order;
+import com.grocerystore.entity.Product;
+import com.grocerystore.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checkout must not query per cart line: the order items are built from the products loaded with the cart.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class OrderServiceQueryCountTest {
+
+    private static final int LARGE_BASKET = 40;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private QueryCountInspector queryCountInspector;
+
+    private List<Product> products;
+
+    @BeforeEach
+    void createProducts() {
+        List<Product> catalog = new ArrayList<>(LARGE_BASKET);
+        for (int i = 0; i < LARGE_BASKET; i++) {
+            Product product = new Product("Query count product " + i, Category.DAIRY,
+                    new BigDecimal("2.50"), null, "Product " + i);
+            product.setStock(1_000);
+            catalog.add(product);
+        }
+        products = productRepository.saveAll(catalog);
+        productService.refreshCatalog();
+
+        // Stock is loaded into the inventory ledger on first use, so every product is checked out once first
+        checkout("query-count-warmup-" + System.nanoTime(), LARGE_BASKET);
+    }
+
+    @Test
+    void checkoutRunsTheSameSelectsForAnyBasketSize() {
+        List<String> single = checkout("query-count-single-" + System.nanoTime(), 1);
+        List<String> large = checkout("query-count-large-" + System.nanoTime(), LARGE_BASKET);
+
+        assertEquals(selects(single).size(), selects(large).size(),
+                () -> "SELECTs for 1 line: " + selects(single) + "\nSELECTs for " + LARGE_BASKET + " lines: " + selects(large));
+    }
+
+    /** Fill a cart with the first lines products and check it out, recording the statements of the checkout */
+    private List<String> checkout(String userId, int lines) {
+        for (int i = 0; i < lines; i++) {
+            cartService.addToCart(new AddToCartRequest(products.get(i).getId(), userId, 2));
+        }
+        CheckoutRequest request = new CheckoutRequest();
+        request.setUserId(userId);
+        request.setFullName("Query Count");
+        request.setEmail("query-count@example.com");
+        request.setPhone("555-0100");
+        request.setAddressLine1("1 Test Street");
+        request.setCity("Springfield");
+        request.setState("IL");
+        request.setZipCode("62701");
+        request.setCountry("US");
+        request.setPaymentMethod(Order.PaymentMethod.CASH_ON_DELIVERY);
+
+        queryCountInspector.beginRecording();
+        orderService.processCheckout(request);
+        return queryCountInspector.endRecording();
+    }
+
+    /** Queries only: ID allocation from the pooled sequences depends on earlier checkouts, not on this one */
+    private static List<String> selects(List<String> statements) {
+        List<String> selects = new ArrayList<>();
+        for (String sql : statements) {
+            String normalized = sql.trim().toLowerCase(Locale.ROOT);
+            if (normalized.startsWith("select") && !normalized.contains("next value for")) {
+                selects.add(sql);
+            }
+        }
+        return selects;
+    }
+}
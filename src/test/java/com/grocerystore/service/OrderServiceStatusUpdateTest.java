@@ -0,0 +1,109 @@
+package com.grocerystore.service;
+
+import com.grocerystore.dto.AddToCartRequest;
+import com.grocerystore.dto.CheckoutRequest;
+import com.grocerystore.entity.Category;
+import com.grocerystore.entity.Order;
+import com.grocerystore.entity.Product;
+import com.grocerystore.repository.OrderRepository;
+import com.grocerystore.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * An admin status update only applies to the status it read, so it cannot overwrite a change made meanwhile.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class OrderServiceStatusUpdateTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long orderId;
+
+    @BeforeEach
+    void placeOrder() throws InterruptedException {
+        Product product = new Product("Status update product", Category.DAIRY, new BigDecimal("3.00"), null, "Product");
+        product.setStock(100);
+        product = productRepository.save(product);
+        productService.refreshCatalog();
+
+        String userId = "status-update-" + System.nanoTime();
+        cartService.addToCart(new AddToCartRequest(product.getId(), userId, 1));
+        CheckoutRequest request = new CheckoutRequest();
+        request.setUserId(userId);
+        request.setFullName("Status Update");
+        request.setEmail("status-update@example.com");
+        request.setPhone("555-0100");
+        request.setAddressLine1("1 Test Street");
+        request.setCity("Springfield");
+        request.setState("IL");
+        request.setZipCode("62701");
+        request.setCountry("US");
+        request.setPaymentMethod(Order.PaymentMethod.CASH_ON_DELIVERY);
+        orderId = orderService.processCheckout(request).getOrderId();
+
+        // Wait for the payment outcome, then start every test from CONFIRMED whatever it was
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (orderRepository.findById(orderId).orElseThrow().getStatus() == Order.OrderStatus.PENDING) {
+            assertTrue(System.nanoTime() < deadline, "Order " + orderId + " never left PENDING");
+            Thread.sleep(20);
+        }
+        jdbcTemplate.update("UPDATE orders SET status = 'CONFIRMED' WHERE id = ?", orderId);
+    }
+
+    @Test
+    void updateAppliesToTheStatusItRead() {
+        assertEquals(Order.OrderStatus.SHIPPED,
+                orderService.updateOrderStatus(orderId, Order.OrderStatus.SHIPPED).orElseThrow().getStatus());
+        assertEquals(Order.OrderStatus.SHIPPED, orderRepository.findById(orderId).orElseThrow().getStatus());
+    }
+
+    @Test
+    void updateDoesNotOverwriteAConcurrentChange() {
+        transactionTemplate.executeWithoutResult(status -> {
+            // The order is loaded as CONFIRMED, then cancelled behind the persistence context's back
+            assertEquals(Order.OrderStatus.CONFIRMED, orderRepository.findById(orderId).orElseThrow().getStatus());
+            jdbcTemplate.update("UPDATE orders SET status = 'CANCELLED' WHERE id = ?", orderId);
+
+            assertThrows(IllegalStateException.class,
+                    () -> orderService.updateOrderStatus(orderId, Order.OrderStatus.SHIPPED));
+
+            // Same connection, so this is the row as the update left it
+            assertEquals("CANCELLED", jdbcTemplate.queryForObject(
+                    "SELECT status FROM orders WHERE id = ?", String.class, orderId));
+            status.setRollbackOnly();
+        });
+    }
+}
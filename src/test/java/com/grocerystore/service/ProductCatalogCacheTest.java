@@ -0,0 +1,98 @@
+package com.grocerystore.service;
+
+import com.grocerystore.entity.Category;
+import com.grocerystore.entity.Product;
+import com.grocerystore.event.ProductChangeEvent;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The cache hands out read-only copies of the products it was given, never the loaded instances, and does not
+ * keep a catalog larger than its bound.
+ */
+class ProductCatalogCacheTest {
+
+    private final List<Product> catalog = new ArrayList<>(List.of(
+            product(1L, "Apple"),
+            product(2L, "Bread"),
+            product(3L, "Cheese")));
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Supplier<List<Product>> loader = () -> {
+        loads.incrementAndGet();
+        return catalog;
+    };
+
+    @Test
+    void cachedProductsAreReadOnlyCopies() {
+        ProductCatalogCache cache = new ProductCatalogCache(10);
+
+        Product cached = cache.getProductById(1L, loader, id -> Optional.empty()).orElseThrow();
+        assertNotSame(catalog.get(0), cached);
+        assertEquals("Apple", cached.getName());
+        assertThrows(UnsupportedOperationException.class, () -> cached.setPrice(BigDecimal.ZERO));
+        assertThrows(UnsupportedOperationException.class, () -> cache.getAllProducts(loader).get(1).setName("Changed"));
+
+        // Changing the loaded or saved instance afterwards does not change the cache
+        catalog.get(0).setName("Changed");
+        Product saved = product(4L, "Dates");
+        cache.onProductChange(ProductChangeEvent.saved(saved, false));
+        saved.setName("Changed");
+        assertEquals(List.of("Apple", "Bread", "Cheese", "Dates"),
+                cache.getAllProducts(loader).stream().map(Product::getName).toList());
+        assertSame(cached, cache.getProductById(1L, loader, id -> Optional.empty()).orElseThrow());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void catalogLargerThanTheBoundIsNotCached() {
+        ProductCatalogCache cache = new ProductCatalogCache(2);
+
+        assertEquals(3, cache.getAllProducts(loader).size());
+        assertEquals(3, cache.getAllProducts(loader).size());
+        assertEquals(2, loads.get());
+        // Single products come from the fallback rather than a full catalog load
+        assertEquals("Bread", cache.getProductById(2L, loader, id -> Optional.of(product(id, "Bread"))).orElseThrow().getName());
+        assertEquals(2, loads.get());
+        assertTrue((Boolean) cache.getStats().get("oversized"));
+
+        // A reload caches the catalog again once it fits
+        catalog.remove(2);
+        cache.invalidate();
+        cache.getAllProducts(loader);
+        cache.getAllProducts(loader);
+        assertEquals(3, loads.get());
+        assertEquals(2, cache.getStats().get("cachedProducts"));
+    }
+
+    @Test
+    void snapshotGrowingPastTheBoundIsDropped() {
+        ProductCatalogCache cache = new ProductCatalogCache(3);
+        cache.getAllProducts(loader);
+
+        cache.productSaved(product(4L, "Dates"));
+        catalog.add(product(4L, "Dates"));
+
+        assertEquals(4, cache.getAllProducts(loader).size());
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.getStats().get("cachedProducts"));
+        assertTrue((Boolean) cache.getStats().get("oversized"));
+    }
+
+    private static Product product(Long id, String name) {
+        Product product = new Product(name, Category.DAIRY, new BigDecimal("1.00"), null, "Product");
+        product.setId(id);
+        return product;
+    }
+}
@@ -0,0 +1,85 @@
+package com.grocerystore.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * The persistent map agrees with a HashMap through random changes, leaves the versions it was derived from
+ * untouched, and reports exactly the keys that differ between two versions.
+ */
+class ProductQuantitiesTest {
+
+    @Test
+    void matchesAHashMapThroughRandomChanges() {
+        Random random = new Random(7);
+        Map<Long, Integer> expected = new HashMap<>();
+        ProductQuantities map = ProductQuantities.EMPTY;
+
+        for (int step = 0; step < 5_000; step++) {
+            // Mostly small IDs so keys are replaced and removed, with some far apart
+            long productId = random.nextInt(4) == 0 ? random.nextLong() : random.nextInt(200);
+            int quantity = random.nextInt(3) == 0 ? 0 : 1 + random.nextInt(10);
+            Map<Long, Integer> before = new HashMap<>(expected);
+            ProductQuantities previous = map;
+
+            map = map.with(productId, quantity);
+            if (quantity > 0) {
+                expected.put(productId, quantity);
+            } else {
+                expected.remove(productId);
+            }
+
+            assertEquals(expected.size(), map.size());
+            assertEquals(expected.getOrDefault(productId, 0), map.get(productId));
+            assertEquals(before.getOrDefault(productId, 0), previous.get(productId));
+            assertEquals(before.size(), previous.size());
+            assertDiff(before, expected, previous, map);
+        }
+        Set<Long> keys = new HashSet<>();
+        map.forEachProductId(keys::add);
+        assertEquals(expected.keySet(), keys);
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    void removingAMissingKeyKeepsTheMap() {
+        ProductQuantities map = ProductQuantities.of(Map.of(1L, 2, 3L, 4));
+
+        assertSame(map, map.with(5L, 0));
+        assertEquals(0, map.with(1L, 0).with(3L, 0).size());
+    }
+
+    @Test
+    void diffReportsTheKeysOnlyInOneVersion() {
+        ProductQuantities from = ProductQuantities.of(Map.of(1L, 1, 2L, 2, 3L, 3));
+        ProductQuantities to = from.with(1L, 0).with(2L, 5).with(4L, 1);
+
+        assertDiff(Map.of(1L, 1, 2L, 2, 3L, 3), Map.of(2L, 5, 3L, 3, 4L, 1), from, to);
+        assertDiff(Map.of(), Map.of(2L, 5, 3L, 3, 4L, 1), ProductQuantities.EMPTY, to);
+        assertDiff(Map.of(1L, 1, 2L, 2, 3L, 3), Map.of(), from, ProductQuantities.EMPTY);
+    }
+
+    private static void assertDiff(Map<Long, Integer> before, Map<Long, Integer> after,
+                                   ProductQuantities from, ProductQuantities to) {
+        Set<Long> removed = new HashSet<>(before.keySet());
+        removed.removeAll(after.keySet());
+        Set<Long> added = new HashSet<>(after.keySet());
+        added.removeAll(before.keySet());
+
+        Set<Long> reportedRemoved = new HashSet<>();
+        Set<Long> reportedAdded = new HashSet<>();
+        ProductQuantities.diff(from, to, reportedRemoved::add, reportedAdded::add);
+        assertEquals(removed, reportedRemoved);
+        assertEquals(added, reportedAdded);
+    }
+}
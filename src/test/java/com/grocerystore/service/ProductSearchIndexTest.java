@@ -0,0 +1,78 @@
+package com.grocerystore.service;
+
+import com.grocerystore.entity.Category;
+import com.grocerystore.entity.Product;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Search terms are lower-case alphanumeric runs; products must match every term, and name, exact and
+ * name-prefix matches rank above description and prefix matches.
+ */
+class ProductSearchIndexTest {
+
+    private final List<Product> catalog = List.of(
+            product(1L, "Green Apple", "Crisp and tart"),
+            product(2L, "Apple Juice", "Pressed from red apples"),
+            product(3L, "Pineapple", "Sweet tropical fruit"),
+            product(4L, "Cider", "Made from apple and pear"),
+            product(5L, "Applesauce", "Smooth, no sugar added"));
+
+    @Test
+    void textIsSplitIntoLowerCaseAlphanumericTerms() {
+        assertEquals(List.of("fat", "free", "2", "milk"), ProductSearchIndex.tokenize("Fat-free 2% MILK!"));
+        assertEquals(List.of("café", "crème"), ProductSearchIndex.tokenize("  Café  crème "));
+        assertTrue(ProductSearchIndex.tokenize("!!! ... ").isEmpty());
+        assertTrue(ProductSearchIndex.tokenize(null).isEmpty());
+    }
+
+    @Test
+    void queryWithoutTermsMatchesNothing() {
+        ProductSearchIndex index = new ProductSearchIndex();
+
+        assertTrue(index.search("!!!", () -> catalog).isEmpty());
+        assertTrue(index.search("   ", () -> catalog).isEmpty());
+        assertTrue(index.search("", () -> catalog).isEmpty());
+    }
+
+    @Test
+    void resultsAreRankedByMatchQuality() {
+        ProductSearchIndex index = new ProductSearchIndex();
+
+        // Names starting with the query first, an exact term ahead of a prefix; then the other name match,
+        // then the description match
+        assertEquals(List.of(2L, 5L, 1L, 4L), ids(index.search("apple", () -> catalog)));
+        // Every term must match; "tart" only appears in one description
+        assertEquals(List.of(1L), ids(index.search("apple tart", () -> catalog)));
+        // Prefixes match the start of a term only, so "apple" inside "pineapple" is not a match
+        assertEquals(List.of(3L), ids(index.search("pine", () -> catalog)));
+        assertTrue(index.search("banana", () -> catalog).isEmpty());
+    }
+
+    @Test
+    void changesAreIndexedAfterLoading() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.search("apple", () -> catalog);
+
+        index.productSaved(product(6L, "Apple Pie", "Baked daily"));
+        index.productDeleted(2L);
+
+        assertEquals(List.of(6L), ids(index.search("apple pie", () -> catalog)));
+        assertTrue(index.search("juice", () -> catalog).isEmpty());
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        return products.stream().map(Product::getId).toList();
+    }
+
+    private static Product product(Long id, String name, String description) {
+        Product product = new Product(name, Category.FRUITS, new BigDecimal("1.00"), null, description);
+        product.setId(id);
+        return product;
+    }
+}
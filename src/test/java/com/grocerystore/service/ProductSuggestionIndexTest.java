@@ -0,0 +1,134 @@
+package com.grocerystore.service;
+
+import com.grocerystore.entity.Category;
+import com.grocerystore.entity.Product;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Any word start of a name matches a prefix, names starting with it rank first, and the top-N stays right as the
+ * trie's edges are split and merged by renames and deletes.
+ */
+class ProductSuggestionIndexTest {
+
+    private final List<Product> catalog = List.of(
+            product(1L, "Apple Juice"),
+            product(2L, "Green Apple"),
+            product(3L, "Apricot Jam"),
+            product(4L, "Pineapple"),
+            product(5L, "Fresh Apples"),
+            product(6L, "Applesauce"));
+
+    @Test
+    void prefixMatchesAnyWordStart() {
+        ProductSuggestionIndex index = new ProductSuggestionIndex(10);
+
+        assertEquals(List.of("Apple Juice", "Applesauce", "Fresh Apples", "Green Apple"), index.suggest("app", 10, () -> catalog));
+        assertEquals(List.of("Apple Juice"), index.suggest(" APPLE J", 10, () -> catalog));
+        assertEquals(List.of("Apple Juice", "Apricot Jam"), index.suggest("j", 10, () -> catalog));
+        // "apple" inside "pineapple" is not at a word start
+        assertEquals(List.of("Pineapple"), index.suggest("pine", 10, () -> catalog));
+        assertTrue(index.suggest("appx", 10, () -> catalog).isEmpty());
+        assertTrue(index.suggest("", 10, () -> catalog).isEmpty());
+    }
+
+    @Test
+    void topSuggestionsAreLimited() {
+        ProductSuggestionIndex index = new ProductSuggestionIndex(3);
+
+        assertEquals(List.of("Apple Juice", "Applesauce"), index.suggest("app", 2, () -> catalog));
+        assertEquals(List.of("Apple Juice", "Applesauce", "Apricot Jam"), index.suggest("ap", 10, () -> catalog));
+        assertTrue(index.suggest("ap", 0, () -> catalog).isEmpty());
+    }
+
+    @Test
+    void renamesAndDeletesUpdateSuggestions() {
+        ProductSuggestionIndex index = new ProductSuggestionIndex(10);
+        index.suggest("a", 10, () -> catalog);
+
+        index.productDeleted(3L);
+        index.productSaved(product(6L, "Apple Pie"));
+
+        assertTrue(index.suggest("apr", 10, () -> catalog).isEmpty());
+        assertEquals(List.of("Fresh Apples"), index.suggest("apples", 10, () -> catalog));
+        assertEquals(List.of("Apple Juice", "Apple Pie", "Fresh Apples", "Green Apple"), index.suggest("ap", 10, () -> catalog));
+    }
+
+    @Test
+    void suggestionsMatchAFullScanThroughRandomChanges() {
+        Random random = new Random(42);
+        int maxSuggestions = 4;
+        ProductSuggestionIndex index = new ProductSuggestionIndex(maxSuggestions);
+        Map<Long, String> names = new HashMap<>();
+        for (long id = 1; id <= 40; id++) {
+            names.put(id, randomName(random));
+        }
+        List<Product> initial = new ArrayList<>();
+        names.forEach((id, name) -> initial.add(product(id, name)));
+        index.suggest("a", 1, () -> initial);
+
+        for (int step = 0; step < 400; step++) {
+            long id = 1 + random.nextInt(50);
+            if (random.nextInt(3) == 0) {
+                names.remove(id);
+                index.productDeleted(id);
+            } else {
+                String name = randomName(random);
+                names.put(id, name);
+                index.productSaved(product(id, name));
+            }
+            String source = randomName(random);
+            String prefix = source.substring(0, Math.min(source.length(), 1 + random.nextInt(3)));
+            assertEquals(scan(names, prefix, maxSuggestions), index.suggest(prefix, maxSuggestions, List::of),
+                    "prefix '" + prefix + "' after step " + step);
+        }
+    }
+
+    // Short names over a small alphabet, so names share long prefixes and words
+    private static String randomName(Random random) {
+        StringBuilder name = new StringBuilder();
+        int length = 1 + random.nextInt(7);
+        for (int i = 0; i < length; i++) {
+            name.append(i > 0 && random.nextInt(4) == 0 ? ' ' : "abAB".charAt(random.nextInt(4)));
+        }
+        return name.toString();
+    }
+
+    private static List<String> scan(Map<Long, String> names, String prefix, int limit) {
+        String key = prefix.trim().toLowerCase(Locale.ROOT);
+        Map<String, Integer> ranks = new HashMap<>();
+        for (String name : names.values()) {
+            String lowerCaseName = name.trim().toLowerCase(Locale.ROOT);
+            for (int start = 0; start < lowerCaseName.length(); start++) {
+                boolean wordStart = Character.isLetterOrDigit(lowerCaseName.charAt(start))
+                        && (start == 0 || !Character.isLetterOrDigit(lowerCaseName.charAt(start - 1)));
+                if (wordStart && lowerCaseName.startsWith(key, start)) {
+                    ranks.merge(name, start == 0 ? 0 : 1, Math::min);
+                }
+            }
+        }
+        return ranks.keySet().stream()
+                .sorted(Comparator.<String>comparingInt(ranks::get)
+                        .thenComparing(String.CASE_INSENSITIVE_ORDER)
+                        .thenComparing(Comparator.naturalOrder()))
+                .limit(limit)
+                .toList();
+    }
+
+    private static Product product(Long id, String name) {
+        Product product = new Product(name, Category.FRUITS, new BigDecimal("1.00"), null, "Product");
+        product.setId(id);
+        return product;
+    }
+}
@@ -0,0 +1,284 @@
+package com.grocerystore.service;
+
+import com.grocerystore.dto.AddToCartRequest;
+import com.grocerystore.entity.CartItem;
+import com.grocerystore.entity.Category;
+import com.grocerystore.entity.Product;
+import com.grocerystore.repository.CartRepository;
+import com.grocerystore.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Write-behind carts changed by overlapping transactions that commit or roll back in any order, with a pool of two
+ * connections.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "grocerystore.cart.store=write-behind",
+        "grocerystore.datasource.pool-size=2",
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=1000"
+})
+@ActiveProfiles("test")
+class WriteBehindCartStoreTransactionTest {
+
+    @Autowired
+    private WriteBehindCartStore cartStore;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CartService cartService;
+
+    private List<Product> products;
+
+    @BeforeEach
+    void createProducts() {
+        List<Product> catalog = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            catalog.add(new Product("Write-behind product " + i, Category.FRUITS, new BigDecimal("3.00"), null, "Product " + i));
+        }
+        products = productRepository.saveAll(catalog);
+    }
+
+    @Test
+    void rollbackKeepsWhatAnotherTransactionAddedToTheSameLine() {
+        String userId = "write-behind-rollback-" + System.nanoTime();
+        Long productId = products.get(0).getId();
+
+        CartItem[] inserted = new CartItem[1];
+        rollBack(() -> {
+            inserted[0] = cartStore.addQuantity(userId, productId, 3);
+            // Another request adds to the line and commits while this transaction is still open
+            inOtherTransaction(() -> cartStore.addQuantity(userId, productId, 2));
+        });
+
+        CartItem line = cartStore.findByUserIdAndProductId(userId, productId).orElseThrow();
+        assertEquals(inserted[0].getId(), line.getId());
+        assertEquals(2, line.getQuantity());
+
+        // The rolled back insert is written again under the same ID
+        cartStore.flush();
+        List<CartItem> rows = cartRepository.findByUserId(userId);
+        assertEquals(1, rows.size());
+        assertEquals(inserted[0].getId(), rows.get(0).getId());
+        assertEquals(2, rows.get(0).getQuantity());
+    }
+
+    @Test
+    void rollbackUndoesOnlyItsOwnChanges() {
+        String userId = "write-behind-deltas-" + System.nanoTime();
+        Long kept = products.get(0).getId();
+        Long removed = products.get(1).getId();
+        cartStore.addQuantity(userId, kept, 1);
+        cartStore.addQuantity(userId, removed, 4);
+
+        rollBack(() -> {
+            cartStore.addQuantity(userId, kept, 5);
+            cartStore.deleteById(cartStore.findByUserIdAndProductId(userId, removed).orElseThrow().getId());
+            inOtherTransaction(() -> {
+                cartStore.addQuantity(userId, kept, 2);
+                cartStore.addQuantity(userId, removed, 1);
+            });
+        });
+
+        assertEquals(Map.of(kept, 3, removed, 1), quantities(userId));
+        cartStore.flush();
+        assertEquals(Map.of(kept, 3, removed, 1), cartRepository.findByUserId(userId).stream()
+                .collect(Collectors.toMap(CartItem::getProductId, CartItem::getQuantity)));
+    }
+
+    @Test
+    void rolledBackSetGivesWayToTheQuantityItReplacedAndLaterAdds() {
+        String userId = "write-behind-set-rollback-" + System.nanoTime();
+        Long productId = products.get(0).getId();
+        Long itemId = cartStore.addQuantity(userId, productId, 4).getId();
+
+        rollBack(() -> {
+            cartStore.updateQuantity(itemId, 10);
+            inOtherTransaction(() -> cartStore.addQuantity(userId, productId, 2));
+        });
+
+        assertEquals(Map.of(productId, 6), quantities(userId));
+        cartStore.flush();
+        assertEquals(6, cartRepository.findById(itemId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void committedSetKeepsAddsMadeAfterIt() {
+        String userId = "write-behind-set-commit-" + System.nanoTime();
+        Long productId = products.get(0).getId();
+        Long itemId = cartStore.addQuantity(userId, productId, 4).getId();
+
+        // The add commits first, then the set it was made on top of
+        transactionTemplate.executeWithoutResult(status -> {
+            cartStore.updateQuantity(itemId, 10);
+            inOtherTransaction(() -> cartStore.addQuantity(userId, productId, 2));
+        });
+
+        assertEquals(Map.of(productId, 12), quantities(userId));
+        cartStore.flush();
+        assertEquals(12, cartRepository.findById(itemId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    void interleavedCommitsAndRollbacksKeepCartRowsAndSummaryInStep() throws Exception {
+        String userId = "write-behind-interleaved-" + System.nanoTime();
+        Long addedOnly = products.get(0).getId();
+        Long changed = products.get(1).getId();
+        cartService.addToCart(new AddToCartRequest(addedOnly, userId, 1));
+        cartService.addToCart(new AddToCartRequest(changed, userId, 1));
+        // Cache the summary so the transactions' deltas have something to drift from
+        assertEquals(2, cartService.getCartSummary(userId).getItemCount());
+
+        AtomicInteger committedAdds = new AtomicInteger(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Random random = new Random(t);
+                tasks.add(executor.submit(() -> {
+                    for (int round = 0; round < 25; round++) {
+                        int added = 1 + random.nextInt(3);
+                        boolean rollBack = random.nextBoolean();
+                        try {
+                            transactionTemplate.executeWithoutResult(status -> {
+                                cartService.addToCart(new AddToCartRequest(addedOnly, userId, added));
+                                changeLine(userId, changed, random);
+                                if (rollBack) {
+                                    status.setRollbackOnly();
+                                }
+                            });
+                            if (!rollBack) {
+                                committedAdds.addAndGet(added);
+                            }
+                        } catch (RuntimeException e) {
+                            // Lost a race for the line or a connection and rolled back
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<Long, Integer> lines = quantities(userId);
+        assertEquals(committedAdds.get(), lines.get(addedOnly));
+        assertEquals(lines.values().stream().mapToInt(Integer::intValue).sum(), cartService.getCartSummary(userId).getItemCount());
+        cartStore.flush();
+        assertEquals(lines, cartRepository.findByUserId(userId).stream()
+                .collect(Collectors.toMap(CartItem::getProductId, CartItem::getQuantity)));
+
+        // The cached summary goes on taking the deltas the store reports
+        CartItem line = cartStore.findByUserIdAndProductId(userId, addedOnly).orElseThrow();
+        cartService.updateCartItemQuantity(line.getId(), 2);
+        cartService.removeFromCart(line.getId(), userId);
+        cartService.addToCart(new AddToCartRequest(addedOnly, userId, 3));
+        lines = quantities(userId);
+        assertEquals(lines.values().stream().mapToInt(Integer::intValue).sum(), cartService.getCartSummary(userId).getItemCount());
+        cartStore.flush();
+        assertEquals(lines, cartRepository.findByUserId(userId).stream()
+                .collect(Collectors.toMap(CartItem::getProductId, CartItem::getQuantity)));
+    }
+
+    @Test
+    void rollbackOfAnInsertNobodyElseTouchedLeavesNoRow() {
+        String userId = "write-behind-insert-" + System.nanoTime();
+        rollBack(() -> cartStore.addQuantity(userId, products.get(0).getId(), 1));
+
+        assertTrue(quantities(userId).isEmpty());
+        cartStore.flush();
+        assertTrue(cartRepository.findByUserId(userId).isEmpty());
+    }
+
+    @Test
+    void insertInsideATransactionUsesItsConnection() throws Exception {
+        String userId = "write-behind-connection-" + System.nanoTime();
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // Takes the second pooled connection and keeps it until the add below is done
+        CompletableFuture<Void> other = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            cartRepository.countItemsByUserId(userId);
+            holding.countDown();
+            await(release);
+        }));
+        try {
+            assertTrue(holding.await(10, TimeUnit.SECONDS));
+            transactionTemplate.executeWithoutResult(status -> cartStore.addQuantity(userId, products.get(0).getId(), 1));
+        } finally {
+            release.countDown();
+        }
+        other.get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, cartRepository.findByUserId(userId).size());
+    }
+
+    private void rollBack(Runnable changes) {
+        transactionTemplate.executeWithoutResult(status -> {
+            changes.run();
+            status.setRollbackOnly();
+        });
+    }
+
+    private void inOtherTransaction(Runnable changes) {
+        CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> changes.run())).join();
+    }
+
+    /** Add to, set or remove the user's line for a product */
+    private void changeLine(String userId, Long productId, Random random) {
+        CartItem line = cartStore.findByUserIdAndProductId(userId, productId).orElse(null);
+        int choice = random.nextInt(3);
+        if (line == null || choice == 0) {
+            cartService.addToCart(new AddToCartRequest(productId, userId, 1 + random.nextInt(3)));
+        } else if (choice == 1) {
+            cartService.updateCartItemQuantity(line.getId(), 1 + random.nextInt(5));
+        } else {
+            cartService.removeFromCart(line.getId(), userId);
+        }
+    }
+
+    private Map<Long, Integer> quantities(String userId) {
+        return cartStore.findByUserIdWithProducts(userId).stream()
+                .collect(Collectors.toMap(CartItem::getProductId, CartItem::getQuantity));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}